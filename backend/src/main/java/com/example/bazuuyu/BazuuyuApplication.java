@@ -2,10 +2,12 @@ package com.example.bazuuyu;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
 
 @SpringBootApplication
 @EnableMethodSecurity
+@EnableScheduling
 public class BazuuyuApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,54 @@
+package com.example.bazuuyu.cart;
+
+import com.example.bazuuyu.service.CartService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/**
+ * xoa gio guest khong hoat dong qua guest-ttl va gio CHECKED_OUT qua checked-out-ttl tu luc checkout, theo tung lo (moi lo 1 transaction ngan, khong khoa lau bang cart).
+ * chay tren moi instance; SKIP LOCKED trong CartService.purgeStale chia viec giua cac instance.
+ */
+@Component
+public class CartPurgeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(CartPurgeJob.class);
+    private static final int MAX_BATCHES_PER_RUN = 200;
+
+    private final CartService cartService;
+    private final Duration guestTtl;
+    private final Duration checkedOutTtl;
+    private final int batchSize;
+
+    public CartPurgeJob(CartService cartService,
+                        @Value("${cart.purge.guest-ttl:P30D}") Duration guestTtl,
+                        @Value("${cart.purge.checked-out-ttl:P30D}") Duration checkedOutTtl,
+                        @Value("${cart.purge.batch:500}") int batchSize) {
+        this.cartService = cartService;
+        this.guestTtl = guestTtl;
+        this.checkedOutTtl = checkedOutTtl;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${cart.purge.cron:0 45 3 * * *}")
+    public void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime guestIdleBefore = now.minus(guestTtl);
+        LocalDateTime checkedOutBefore = now.minus(checkedOutTtl);
+
+        int carts = 0;
+        int items = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            CartService.PurgeResult r = cartService.purgeStale(guestIdleBefore, checkedOutBefore, batchSize);
+            carts += r.carts();
+            items += r.items();
+            if (r.carts() < batchSize) break;
+        }
+        log.info("Cart purge reclaimed {} carts and {} cart items", carts, items);
+    }
+}
@@ -0,0 +1,153 @@
+package com.example.bazuuyu.catalog;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * bus xoa cache giua cac instance (Cloud Run) bang Postgres LISTEN/NOTIFY, khong can service ngoai.
+ * ghi: {@code NOTIFY catalog_changed, '<productId>'} trong chinh transaction ghi san pham -> chi gui khi commit.
+ * doc: moi instance LISTEN tren 1 connection rieng (ngoai pool) va publish lai ProductChangedEvent
+ * (remote = true) de cac cache local tu xoa. ket noi lai => mat thong bao trong luc rot => xoa het.
+ * instance gui cung nhan lai thong bao cua minh: xoa local them 1 lan, vo hai.
+ */
+@Component
+public class CatalogInvalidationBus {
+
+    private static final Logger log = LoggerFactory.getLogger(CatalogInvalidationBus.class);
+
+    static final String CHANNEL = "catalog_changed";
+    private static final int POLL_MILLIS = 10_000;
+    private static final long MAX_BACKOFF_MILLIS = 30_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher events;
+    private final DataSourceProperties dataSource;
+    private final boolean enabled;
+
+    private volatile boolean running;
+    private volatile Connection listenConnection;
+    private Thread worker;
+
+    public CatalogInvalidationBus(JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher events,
+                                  DataSourceProperties dataSource,
+                                  @Value("${catalog.bus.enabled:true}") boolean enabled) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.events = events;
+        this.dataSource = dataSource;
+        // chi Postgres co LISTEN/NOTIFY (test H2 thi tat)
+        String url = dataSource.determineUrl();
+        this.enabled = enabled && url != null && url.startsWith("jdbc:postgresql:");
+    }
+
+    // BEFORE_COMMIT: NOTIFY nam trong transaction ghi, Postgres chi giao sau khi commit
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void publish(ProductChangedEvent e) {
+        if (!enabled || e.remote()) return;
+        String payload = e.productId() == null ? "" : e.productId().toString();
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) return;
+        running = true;
+        worker = new Thread(this::listenLoop, "catalog-invalidation-bus");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        Connection conn = listenConnection;
+        if (conn != null) {
+            try {
+                conn.close(); // lam getNotifications thoat ngay
+            } catch (SQLException ignored) {
+            }
+        }
+        if (worker != null) worker.interrupt();
+    }
+
+    // ---------------- listen ----------------
+
+    private void listenLoop() {
+        boolean reconnect = false;
+        long backoff = 1_000;
+        while (running) {
+            try (Connection conn = DriverManager.getConnection(dataSource.determineUrl(),
+                    dataSource.determineUsername(), dataSource.determinePassword())) {
+                listenConnection = conn;
+                try (Statement st = conn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                if (reconnect) {
+                    log.info("Catalog bus reconnected, flushing local catalog caches");
+                    events.publishEvent(ProductChangedEvent.flushAll());
+                } else {
+                    log.info("Catalog bus listening on channel {}", CHANNEL);
+                }
+                backoff = 1_000;
+                poll(conn);
+            } catch (SQLException | RuntimeException ex) {
+                if (!running) break;
+                log.warn("Catalog bus connection lost, retrying in {} ms: {}", backoff, ex.getMessage());
+                try {
+                    Thread.sleep(backoff);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            } finally {
+                listenConnection = null;
+            }
+            reconnect = true;
+        }
+    }
+
+    private void poll(Connection conn) throws SQLException {
+        PGConnection pg = conn.unwrap(PGConnection.class);
+        while (running) {
+            PGNotification[] notifications = pg.getNotifications(POLL_MILLIS);
+            if (notifications == null || notifications.length == 0) {
+                // khong co gi trong 1 chu ky: ping de phat hien ket noi chet (TCP bi cat im lang)
+                try (Statement st = conn.createStatement()) {
+                    st.setQueryTimeout(5);
+                    st.execute("SELECT 1");
+                }
+                continue;
+            }
+            for (PGNotification n : notifications) {
+                events.publishEvent(toEvent(n.getParameter()));
+            }
+        }
+    }
+
+    static ProductChangedEvent toEvent(String payload) {
+        try {
+            return new ProductChangedEvent(Long.valueOf(payload.trim()), true);
+        } catch (RuntimeException e) {
+            return ProductChangedEvent.flushAll(); // payload rong/hong => xoa het cho chac
+        }
+    }
+}
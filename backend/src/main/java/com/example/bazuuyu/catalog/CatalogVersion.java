@@ -0,0 +1,59 @@
+package com.example.bazuuyu.catalog;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+
+/**
+ * phien ban cua catalog, dung chung moi instance: 1 dong trong bang catalog_version (V15),
+ * tang trong chinh transaction ghi san pham. moi instance giu ban sao doc tu DB (khong query moi request),
+ * doc lai sau moi thay doi (local hoac qua CatalogInvalidationBus) va dinh ky de chac chan.
+ * cache nao dung version lam mot phan cua key thi tu het han khi catalog doi.
+ */
+@Component
+public class CatalogVersion {
+
+    private record State(long version, Instant lastModified) {}
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile State state = new State(0, Instant.EPOCH);
+
+    public CatalogVersion(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public long current() {
+        return state.version();
+    }
+
+    public Instant lastModified() {
+        return state.lastModified();
+    }
+
+    // BEFORE_COMMIT: cung commit/rollback voi thay doi san pham; event remote da duoc instance gui tang roi
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void bump(ProductChangedEvent e) {
+        if (e.remote()) return;
+        jdbcTemplate.update("UPDATE catalog_version SET version = version + 1, updated_at = now() WHERE id = 1");
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        refresh();
+    }
+
+    // luoi an toan khi mat thong bao NOTIFY: ETag cu toi da 1 chu ky
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${catalog.version.refresh-interval:PT5S}")
+    public void refresh() {
+        state = jdbcTemplate.queryForObject("SELECT version, updated_at FROM catalog_version WHERE id = 1",
+                (rs, i) -> new State(rs.getLong(1), rs.getTimestamp(2).toInstant()));
+    }
+}
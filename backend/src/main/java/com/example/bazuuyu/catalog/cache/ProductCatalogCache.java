@@ -0,0 +1,81 @@
+package com.example.bazuuyu.catalog.cache;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.dto.response.ProductResponse;
+import com.example.bazuuyu.entity.Category;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * cache san pham trong bo nho (theo id va theo trang danh muc).
+ * bi xoa sau khi transaction ghi san pham commit, xem {@link ProductChangedEvent}.
+ */
+@Component
+public class ProductCatalogCache {
+
+    private record PageKey(Category category, int page, int size, String sort) {}
+
+    private final Cache<Long, ProductResponse> byId;
+    private final Cache<PageKey, Page<ProductResponse>> byPage;
+
+    public ProductCatalogCache(MeterRegistry registry,
+                               @Value("${catalog.cache.max-products:500}") long maxProducts,
+                               @Value("${catalog.cache.max-pages:200}") long maxPages,
+                               @Value("${catalog.cache.ttl:PT10M}") Duration ttl) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maxProducts)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.byPage = Caffeine.newBuilder()
+                .maximumSize(maxPages)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+
+        // cache.gets{result=hit|miss}, cache.evictions, cache.size ... under /actuator/metrics
+        CaffeineCacheMetrics.monitor(registry, byId, "catalog.products");
+        CaffeineCacheMetrics.monitor(registry, byPage, "catalog.pages");
+    }
+
+    // loader tra ve null (khong tim thay) thi khong cache
+    public ProductResponse getProduct(Long id, Function<Long, ProductResponse> loader) {
+        return byId.get(id, loader);
+    }
+
+    public Page<ProductResponse> getPage(Category category, Pageable pageable,
+                                         Supplier<Page<ProductResponse>> loader) {
+        PageKey key = new PageKey(category, pageable.getPageNumber(), pageable.getPageSize(),
+                pageable.getSort().toString());
+        return byPage.get(key, k -> loader.get());
+    }
+
+    // mot san pham doi co the lam lech moi trang, nen xoa het cache trang
+    public void evict(Long productId) {
+        if (productId != null) byId.invalidate(productId);
+        byPage.invalidateAll();
+    }
+
+    public void evictAll() {
+        byId.invalidateAll();
+        byPage.invalidateAll();
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        if (e.productId() == null) evictAll();
+        else evict(e.productId());
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.bazuuyu.catalog.cache;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.dto.response.SearchFacetsResponse;
+import com.example.bazuuyu.entity.Category;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * cache facet counts theo query da normalize (keyword bo dau + category + engine).
+ */
+@Component
+public class SearchFacetCache {
+
+    private record FacetKey(String keyword, Category category, String engine) {}
+
+    private final Cache<FacetKey, SearchFacetsResponse> facets;
+
+    public SearchFacetCache(MeterRegistry registry,
+                            @Value("${search.facets.cache.max-size:1000}") long maxSize,
+                            @Value("${search.facets.cache.ttl:PT5M}") Duration ttl) {
+        this.facets = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, facets, "search.facets");
+    }
+
+    public SearchFacetsResponse get(String normalizedKeyword, Category category, String engine,
+                                    Supplier<SearchFacetsResponse> loader) {
+        return facets.get(new FacetKey(normalizedKeyword, category, engine), k -> loader.get());
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        facets.invalidateAll();
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.bazuuyu.catalog.cache;
+
+import com.example.bazuuyu.catalog.CatalogVersion;
+import com.example.bazuuyu.dto.response.ProductResponse;
+import com.example.bazuuyu.entity.Category;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * cache ket qua /api/search theo (catalog version, keyword da normalize, category, page, size).
+ * khi catalog doi thi version doi => key cu khong con duoc doc, tu het han theo TTL/size.
+ */
+@Component
+public class SearchResultCache {
+
+    private record ResultKey(long version, String keyword, Category category, int page, int size) {}
+
+    private final Cache<ResultKey, Page<ProductResponse>> results;
+    private final CatalogVersion catalogVersion;
+
+    public SearchResultCache(MeterRegistry registry,
+                             CatalogVersion catalogVersion,
+                             @Value("${search.results.cache.max-size:2000}") long maxSize,
+                             @Value("${search.results.cache.ttl:PT2M}") Duration ttl) {
+        this.catalogVersion = catalogVersion;
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(registry, results, "search.results");
+        Gauge.builder("search.results.hit.ratio", results, c -> c.stats().hitRate())
+                .description("hit ratio of the /api/search result cache since startup")
+                .register(registry);
+    }
+
+    public Page<ProductResponse> get(String normalizedKeyword, Category category, int page, int size,
+                                     Supplier<Page<ProductResponse>> loader) {
+        ResultKey key = new ResultKey(catalogVersion.current(), normalizedKeyword, category, page, size);
+        return results.get(key, k -> loader.get());
+    }
+}
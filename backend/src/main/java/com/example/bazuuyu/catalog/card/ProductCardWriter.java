@@ -0,0 +1,80 @@
+package com.example.bazuuyu.catalog.card;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.entity.ProductCard;
+import com.example.bazuuyu.repository.ProductCardRepository;
+import com.example.bazuuyu.repository.ProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * giu bang product_card khop voi product/variant/image.
+ * BEFORE_COMMIT: ghi lai card trong chinh transaction ghi san pham -> card va san pham commit cung luc.
+ * ai sua variant/ton kho ngoai ProductService thi phai publish ProductChangedEvent de card cap nhat.
+ */
+@Component
+public class ProductCardWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductCardWriter.class);
+    private static final int BACKFILL_BATCH = 500;
+
+    private final ProductRepository productRepository;
+    private final ProductCardRepository cardRepository;
+
+    public ProductCardWriter(ProductRepository productRepository, ProductCardRepository cardRepository) {
+        this.productRepository = productRepository;
+        this.cardRepository = cardRepository;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        // remote: instance gui da ghi vao DB dung chung roi
+        if (e.remote() || e.productId() == null) return;
+        refresh(e.productId());
+    }
+
+    // query JPQL tren product/variant/image => Hibernate flush thay doi dang cho truoc khi doc
+    public void refresh(Long productId) {
+        productRepository.findCardRowById(productId)
+                .map(ProductCardWriter::toCard)
+                .ifPresentOrElse(cardRepository::save, () -> cardRepository.deleteById(productId));
+    }
+
+    // bang moi (V7) hoac bi lech: dung lai tu product
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfNeeded() {
+        long products = productRepository.count();
+        if (cardRepository.count() == products) return;
+
+        int written = 0;
+        Page<ProductRepository.CardRow> page;
+        int i = 0;
+        do {
+            page = productRepository.findCards(null, PageRequest.of(i++, BACKFILL_BATCH));
+            cardRepository.saveAll(page.map(ProductCardWriter::toCard).getContent());
+            written += page.getNumberOfElements();
+        } while (page.hasNext());
+        log.info("Backfilled product_card: {} rows for {} products", written, products);
+    }
+
+    static ProductCard toCard(ProductRepository.CardRow row) {
+        return ProductCard.builder()
+                .productId(row.getId())
+                .name(row.getName())
+                .category(row.getCategory())
+                .mainImageUrl(row.getMainImageUrl())
+                .displayPrice(row.getDisplayPrice())
+                .inStock(Boolean.TRUE.equals(row.getInStock()))
+                .isBestSeller(Boolean.TRUE.equals(row.getBestSeller()))
+                .isNewArrival(Boolean.TRUE.equals(row.getNewArrival()))
+                .createdAt(row.getCreatedAt())
+                .build();
+    }
+}
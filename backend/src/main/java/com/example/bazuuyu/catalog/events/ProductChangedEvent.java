@@ -0,0 +1,17 @@
+package com.example.bazuuyu.catalog.events;
+
+/**
+ * published by ProductService whenever a product is created, updated or deleted.
+ * remote = nhan tu instance khac qua CatalogInvalidationBus (khong NOTIFY lai).
+ * productId == null => catalog co the lech bat ky (vd mat ket noi LISTEN), xoa het.
+ */
+public record ProductChangedEvent(Long productId, boolean remote) {
+
+    public ProductChangedEvent(Long productId) {
+        this(productId, false);
+    }
+
+    public static ProductChangedEvent flushAll() {
+        return new ProductChangedEvent(null, true);
+    }
+}
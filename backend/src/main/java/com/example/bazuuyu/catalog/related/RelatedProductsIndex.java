@@ -0,0 +1,167 @@
+package com.example.bazuuyu.catalog.related;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.dto.response.ProductCardResponse;
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Order;
+import com.example.bazuuyu.order.events.OrderCompletedEvent;
+import com.example.bazuuyu.repository.OrderRepository;
+import com.example.bazuuyu.repository.ProductPairCountRepository;
+import com.example.bazuuyu.repository.ProductPairCountUpsert;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * "thuong duoc mua cung": dem cap san pham trong cac don da PAID (product_pair_count),
+ * tang dan khi don hoan tat; top-K moi san pham giu trong bo nho cho /api/products/{id}/related.
+ * map duoc dung lai toan bo (volatile swap) khi co thay doi, gom trong 1 chu ky check nhu landing snapshot.
+ */
+@Component
+public class RelatedProductsIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(RelatedProductsIndex.class);
+    private static final int BACKFILL_BATCH = 500;
+    private static final long BACKFILL_LOCK_KEY = 0x7265_6C61_7465_64L; // "related"
+
+    private final ProductPairCountRepository pairRepository;
+    private final ProductPairCountUpsert pairUpsert;
+    private final OrderRepository orderRepository;
+    private final TransactionTemplate tx;
+    private final int topK;
+    private final Duration maxAge;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile Map<Long, List<ProductCardResponse>> related = Map.of();
+    private volatile Instant builtAt = Instant.EPOCH;
+
+    public RelatedProductsIndex(ProductPairCountRepository pairRepository,
+                                ProductPairCountUpsert pairUpsert,
+                                OrderRepository orderRepository,
+                                PlatformTransactionManager transactionManager,
+                                @Value("${related.top-k:12}") int topK,
+                                @Value("${related.max-age:PT10M}") Duration maxAge) {
+        this.pairRepository = pairRepository;
+        this.pairUpsert = pairUpsert;
+        this.orderRepository = orderRepository;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.topK = topK;
+        this.maxAge = maxAge;
+    }
+
+    public List<ProductCardResponse> relatedTo(Long productId, int limit) {
+        List<ProductCardResponse> all = related.getOrDefault(productId, List.of());
+        return all.size() <= limit ? all : all.subList(0, limit);
+    }
+
+    public int topK() {
+        return topK;
+    }
+
+    // ---------------- write ----------------
+
+    // cung transaction voi viec chuyen don sang PAID
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(OrderCompletedEvent e) {
+        pairUpsert.addOrders(List.of(e.orderId()));
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void afterOrderCompleted(OrderCompletedEvent e) {
+        dirty.set(true);
+    }
+
+    // ten/gia/ton kho cua the co the doi
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        dirty.set(true);
+    }
+
+    // ---------------- backfill (1 lan) ----------------
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        try {
+            backfillIfEmpty();
+        } catch (RuntimeException ex) {
+            log.warn("Related products backfill failed: {}", ex.getMessage());
+        }
+        rebuild();
+    }
+
+    /**
+     * bang rong ma da co don PAID => doc lai lich su theo lo (keyset tren order id).
+     * advisory lock + kiem tra lai trong transaction: nhieu instance khoi dong cung luc chi 1 instance chay.
+     * don hoan tat dung luc backfill dang chay co the bi dem 2 lan (chap nhan, chi anh huong xep hang).
+     */
+    public void backfillIfEmpty() {
+        if (pairRepository.count() > 0 || !orderRepository.existsByStatus(Order.OrderStatus.PAID)) return;
+
+        Integer orders = tx.execute(status -> {
+            if (!pairRepository.tryXactLock(BACKFILL_LOCK_KEY) || pairRepository.count() > 0) return 0;
+            int n = 0;
+            long after = 0;
+            List<Long> ids;
+            do {
+                ids = orderRepository.findIdsByStatusAfter(Order.OrderStatus.PAID, after, Limit.of(BACKFILL_BATCH));
+                if (ids.isEmpty()) break;
+                pairUpsert.addOrders(ids);
+                n += ids.size();
+                after = ids.get(ids.size() - 1);
+            } while (ids.size() == BACKFILL_BATCH);
+            return n;
+        });
+        if (orders != null && orders > 0) log.info("Backfilled product pairs from {} paid orders", orders);
+    }
+
+    // ---------------- read model ----------------
+
+    @Scheduled(fixedDelayString = "${related.check-interval:PT30S}")
+    public void refreshIfNeeded() {
+        // max-age: nhat thay doi tu instance khac (bang dung chung, khong co event)
+        if (dirty.get() || builtAt.plus(maxAge).isBefore(Instant.now())) rebuild();
+    }
+
+    public synchronized void rebuild() {
+        dirty.set(false);
+        try {
+            Map<Long, List<ProductCardResponse>> fresh = new HashMap<>();
+            for (ProductPairCountRepository.RelatedRow r : pairRepository.findTopRelated(topK)) {
+                fresh.computeIfAbsent(r.getProductId(), k -> new ArrayList<>()).add(toCard(r));
+            }
+            fresh.replaceAll((k, v) -> List.copyOf(v));
+            related = fresh;
+            builtAt = Instant.now();
+        } catch (RuntimeException ex) {
+            dirty.set(true); // giu map cu, thu lai chu ky sau
+            log.warn("Related products rebuild failed: {}", ex.getMessage());
+        }
+    }
+
+    private static ProductCardResponse toCard(ProductPairCountRepository.RelatedRow r) {
+        return ProductCardResponse.builder()
+                .id(r.getId())
+                .name(r.getName())
+                .category(r.getCategory() == null ? null : Category.valueOf(r.getCategory()))
+                .mainImageUrl(r.getMainImageUrl())
+                .displayPrice(r.getDisplayPrice())
+                .inStock(true) // chi lay san pham con hang
+                .isBestSeller(Boolean.TRUE.equals(r.getBestSeller()))
+                .isNewArrival(Boolean.TRUE.equals(r.getNewArrival()))
+                .build();
+    }
+}
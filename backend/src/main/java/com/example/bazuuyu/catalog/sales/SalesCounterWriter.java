@@ -0,0 +1,43 @@
+package com.example.bazuuyu.catalog.sales;
+
+import com.example.bazuuyu.order.events.OrderPlacedEvent;
+import com.example.bazuuyu.repository.ProductSalesBucketRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+
+/**
+ * cap nhat bo dem ban hang 7/30 ngay khi dat don (khong quet lai order_item de tinh).
+ * BEFORE_COMMIT: bo dem commit cung voi don; native query lam Hibernate flush order_item truoc.
+ */
+@Component
+public class SalesCounterWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(SalesCounterWriter.class);
+
+    // cua so dai nhat dang dung (30 ngay)
+    public static final int MAX_WINDOW_DAYS = 30;
+
+    private final ProductSalesBucketRepository bucketRepository;
+
+    public SalesCounterWriter(ProductSalesBucketRepository bucketRepository) {
+        this.bucketRepository = bucketRepository;
+    }
+
+    @TransactionalEventListener(phase = TransactionPhase.BEFORE_COMMIT, fallbackExecution = true)
+    public void on(OrderPlacedEvent e) {
+        bucketRepository.addOrder(e.orderId(), LocalDate.now());
+    }
+
+    // bucket ngoai cua so 30 ngay khong con duoc dung
+    @Scheduled(cron = "${sales.counters.prune-cron:0 15 3 * * *}")
+    public void prune() {
+        int removed = bucketRepository.deleteOlderThan(LocalDate.now().minusDays(MAX_WINDOW_DAYS - 1L));
+        if (removed > 0) log.info("Pruned {} sales buckets", removed);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.bazuuyu.catalog.search;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.dto.response.SuggestionResponse;
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.repository.ProductRepository;
+import com.example.bazuuyu.utils.VietnameseNormalizer;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.*;
+
+/**
+ * index prefix trong bo nho cho /api/search/suggest (khong goi Postgres khi doc).
+ * snapshot = mang key da sort (ten da bo dau + moi hau to bat dau tu mot tu, de "thun" khop "ao thun")
+ * -> tim bang binary search. snapshot bat bien, doi bang volatile swap khi san pham thay doi.
+ * sua 1 san pham: copy-on-write, bo key cu cua no va tron key moi vao mang da sort (O(so key), khong sort lai ca catalog).
+ */
+@Component
+public class ProductSuggestIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(ProductSuggestIndex.class);
+
+    record Entry(long id, String name, int weight) {}
+
+    // keys[i] thuoc ve entries[refs[i]]; entries[ref] == null = san pham da xoa (khong con key nao tro toi)
+    record Snapshot(String[] keys, int[] refs, Entry[] entries, long estimatedBytes) {}
+
+    private static final Snapshot EMPTY = new Snapshot(new String[0], new int[0], new Entry[0], 0);
+    // qua nhieu o trong do xoa san pham: build lai gon
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    private static final Comparator<Entry> BEST_FIRST = Comparator
+            .comparingInt(Entry::weight).reversed()
+            .thenComparingInt(e -> e.name().length())
+            .thenComparingLong(Entry::id);
+
+    private final ProductRepository productRepository;
+    private final Timer buildTimer;
+    private final Timer updateTimer;
+    // product id -> ref trong snapshot hien tai; chi doc/ghi khi giu lock
+    private final Map<Long, Integer> refById = new HashMap<>();
+    private int tombstones;
+    private volatile Snapshot snapshot = EMPTY;
+
+    public ProductSuggestIndex(ProductRepository productRepository, MeterRegistry registry) {
+        this.productRepository = productRepository;
+        this.buildTimer = Timer.builder("search.suggest.build")
+                .description("time to rebuild the typeahead snapshot")
+                .register(registry);
+        this.updateTimer = Timer.builder("search.suggest.update")
+                .description("time to patch one product into the typeahead snapshot")
+                .register(registry);
+        Gauge.builder("search.suggest.memory", this, i -> i.snapshot.estimatedBytes())
+                .description("estimated heap used by the typeahead snapshot")
+                .baseUnit("bytes")
+                .register(registry);
+        Gauge.builder("search.suggest.keys", this, i -> i.snapshot.keys().length)
+                .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<Entry> fresh = productRepository.findAllSuggestRows().stream()
+                .map(ProductSuggestIndex::toEntry)
+                .toList();
+        synchronized (this) {
+            rebuild(fresh);
+        }
+        log.info("Typeahead index loaded: {} products, {} keys", fresh.size(), snapshot.keys().length);
+    }
+
+    // chi doc lai 1 dong cua san pham vua doi, roi va snapshot cho rieng san pham do
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        if (e.productId() == null) {
+            load(); // full flush: doc lai toan bo
+            return;
+        }
+        Optional<ProductRepository.SuggestRow> row = productRepository.findSuggestRowById(e.productId());
+        synchronized (this) {
+            updateTimer.record(() -> patch(e.productId(), row.map(ProductSuggestIndex::toEntry).orElse(null)));
+            if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones > refById.size()) {
+                rebuild(Arrays.stream(snapshot.entries()).filter(Objects::nonNull).toList());
+            }
+        }
+    }
+
+    public SuggestionResponse suggest(String query, int limit) {
+        String prefix = VietnameseNormalizer.normalize(query);
+        if (prefix.isEmpty() || limit <= 0) return new SuggestionResponse(List.of(), List.of());
+
+        Snapshot s = snapshot;
+        PriorityQueue<Entry> top = new PriorityQueue<>(limit + 1, BEST_FIRST.reversed());
+        BitSet seen = new BitSet(s.entries().length);
+        for (int i = lowerBound(s.keys(), prefix); i < s.keys().length && s.keys()[i].startsWith(prefix); i++) {
+            int ref = s.refs()[i];
+            if (seen.get(ref)) continue;
+            seen.set(ref);
+            top.offer(s.entries()[ref]);
+            if (top.size() > limit) top.poll(); // bo phan tu kem nhat
+        }
+
+        List<Entry> best = new ArrayList<>(top);
+        best.sort(BEST_FIRST);
+        List<SuggestionResponse.Item> products = best.stream()
+                .map(e -> new SuggestionResponse.Item(e.id(), e.name()))
+                .toList();
+
+        List<Category> categories = Arrays.stream(Category.values())
+                .filter(c -> matchesWordPrefix(VietnameseNormalizer.normalize(c.name().replace('_', ' ')), prefix))
+                .toList();
+
+        return new SuggestionResponse(products, categories);
+    }
+
+    // ---------------- build ----------------
+
+    // caller giu lock
+    private void rebuild(Collection<Entry> source) {
+        Snapshot s = buildTimer.record(() -> build(source));
+        refById.clear();
+        for (int ref = 0; ref < s.entries().length; ref++) refById.put(s.entries()[ref].id(), ref);
+        tombstones = 0;
+        snapshot = s;
+    }
+
+    /**
+     * caller giu lock. updated == null => xoa san pham id. tao snapshot moi bang 1 lan tron tuyen tinh:
+     * key cu cua san pham bi bo, key moi (da sort, vai key) chen dung cho; reader van doc snapshot cu den khi swap.
+     */
+    private void patch(long id, Entry updated) {
+        Snapshot s = snapshot;
+        Integer existing = refById.get(id);
+        if (existing == null && updated == null) return;
+
+        int ref;
+        Entry[] es;
+        long bytes = s.estimatedBytes();
+        if (existing != null) {
+            ref = existing;
+            es = s.entries().clone();
+            bytes -= entryBytes(es[ref]);
+        } else {
+            ref = s.entries().length;
+            es = Arrays.copyOf(s.entries(), ref + 1);
+        }
+        es[ref] = updated;
+        if (updated == null) {
+            refById.remove(id);
+            tombstones++;
+        } else {
+            refById.put(id, ref);
+            bytes += entryBytes(updated);
+        }
+
+        String[] added = updated == null ? new String[0] : keysOf(updated.name()).toArray(String[]::new);
+        Arrays.sort(added);
+        int removed = 0;
+        if (existing != null) {
+            for (int i = 0; i < s.refs().length; i++) {
+                if (s.refs()[i] == ref) {
+                    removed++;
+                    bytes -= keyBytes(s.keys()[i]);
+                }
+            }
+        }
+
+        String[] keys = new String[s.keys().length - removed + added.length];
+        int[] refs = new int[keys.length];
+        int out = 0, a = 0;
+        for (int i = 0; i < s.keys().length; i++) {
+            if (existing != null && s.refs()[i] == ref) continue;
+            while (a < added.length && added[a].compareTo(s.keys()[i]) < 0) {
+                keys[out] = added[a++];
+                refs[out++] = ref;
+            }
+            keys[out] = s.keys()[i];
+            refs[out++] = s.refs()[i];
+        }
+        while (a < added.length) {
+            keys[out] = added[a++];
+            refs[out++] = ref;
+        }
+        for (String k : added) bytes += keyBytes(k);
+        snapshot = new Snapshot(keys, refs, es, bytes);
+    }
+
+    static Snapshot build(Collection<Entry> source) {
+        Entry[] es = source.toArray(Entry[]::new);
+        List<String> keyList = new ArrayList<>();
+        List<Integer> refList = new ArrayList<>();
+        long bytes = 0;
+
+        for (int ref = 0; ref < es.length; ref++) {
+            bytes += entryBytes(es[ref]);
+            for (String key : keysOf(es[ref].name())) {
+                keyList.add(key);
+                refList.add(ref);
+            }
+        }
+
+        Integer[] order = new Integer[keyList.size()];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, Comparator.comparing(keyList::get));
+
+        String[] keys = new String[order.length];
+        int[] refs = new int[order.length];
+        for (int i = 0; i < order.length; i++) {
+            keys[i] = keyList.get(order[i]);
+            refs[i] = refList.get(order[i]);
+            bytes += keyBytes(keys[i]);
+        }
+        return new Snapshot(keys, refs, es, bytes);
+    }
+
+    // ten da bo dau + moi hau to bat dau tu dau mot tu
+    private static List<String> keysOf(String name) {
+        String norm = VietnameseNormalizer.normalize(name);
+        List<String> keys = new ArrayList<>();
+        for (int pos = 0; pos < norm.length(); pos++) {
+            if (pos > 0 && norm.charAt(pos - 1) != ' ') continue; // chi bat dau tu dau moi tu
+            keys.add(norm.substring(pos));
+        }
+        return keys;
+    }
+
+    private static long entryBytes(Entry e) {
+        return 48 + e.name().length() * 2L; // entry + ten goc
+    }
+
+    private static long keyBytes(String key) {
+        return 40 + key.length() + 8 + 4; // String + byte[] (Latin-1) + slot + ref
+    }
+
+    private static Entry toEntry(ProductRepository.SuggestRow row) {
+        // trong so tam thoi theo co danh dau; ban chay > hang moi
+        int weight = (Boolean.TRUE.equals(row.getBestSeller()) ? 2 : 0)
+                + (Boolean.TRUE.equals(row.getNewArrival()) ? 1 : 0);
+        return new Entry(row.getId(), row.getName() == null ? "" : row.getName(), weight);
+    }
+
+    private static int lowerBound(String[] keys, String prefix) {
+        int lo = 0, hi = keys.length;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (keys[mid].compareTo(prefix) < 0) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    private static boolean matchesWordPrefix(String text, String prefix) {
+        return text.startsWith(prefix) || text.contains(" " + prefix);
+    }
+}
@@ -0,0 +1,218 @@
+package com.example.bazuuyu.config;
+
+import com.example.bazuuyu.catalog.CatalogVersion;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * conditional GET cho cac API doc catalog cong khai (GET /api/products/**, /api/search/**, /api/vn/**).
+ * ETag/Last-Modified lay tu CatalogVersion (dung chung moi instance) => tra 304 ngay, khong chay query va khong serialize.
+ * chi tiet san pham (/api/products/{id}) mang ton kho ma version khong theo kip => private, no-cache,
+ * ETag theo noi dung (van 304 khi body y het).
+ * body duoc dem lai de dat Cache-Control/ETag sau khi biet status: loi (4xx/5xx) => no-store, khong ETag.
+ * cart, order, auth... van la no-store (NoStoreCacheFilter).
+ */
+@Component
+@Order(2) // after NoStoreCacheFilter
+public class CatalogConditionalGetFilter extends OncePerRequestFilter {
+
+    private static final Pattern PRODUCT_DETAIL = Pattern.compile("/api/products/\\d+");
+
+    private final CatalogVersion catalogVersion;
+    private final long catalogMaxAge;
+    private final long catalogStaleWhileRevalidate;
+    private final long directoryMaxAge;
+    // du lieu tinh/xa (ViettelPost) khong theo catalog: doi theo lan khoi dong
+    private final String directoryEtag = "W/\"vn-" + System.currentTimeMillis() + "\"";
+    private final long directoryLastModified = System.currentTimeMillis();
+
+    public CatalogConditionalGetFilter(CatalogVersion catalogVersion,
+                                       @Value("${http.catalog.max-age:60}") long catalogMaxAge,
+                                       @Value("${http.catalog.stale-while-revalidate:300}") long catalogStaleWhileRevalidate,
+                                       @Value("${http.directory.max-age:86400}") long directoryMaxAge) {
+        this.catalogVersion = catalogVersion;
+        this.catalogMaxAge = catalogMaxAge;
+        this.catalogStaleWhileRevalidate = catalogStaleWhileRevalidate;
+        this.directoryMaxAge = directoryMaxAge;
+    }
+
+    static boolean isCatalogRead(String uri) {
+        if (isOrderDriven(uri)) return false;
+        return uri.startsWith("/api/products/") || uri.equals("/api/products")
+                || uri.startsWith("/api/search");
+    }
+
+    // xep hang theo don hang (ban chay, mua cung) doi ma CatalogVersion khong doi => khong dung ETag catalog
+    private static boolean isOrderDriven(String uri) {
+        return uri.equals("/api/products/best-sellers") || uri.endsWith("/related");
+    }
+
+    static boolean isDirectoryRead(String uri) {
+        return uri.startsWith("/api/vn/");
+    }
+
+    static boolean isProductDetail(String uri) {
+        return PRODUCT_DETAIL.matcher(uri).matches();
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest req) {
+        String method = req.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method)) return true;
+        String uri = req.getRequestURI();
+        return !isCatalogRead(uri) && !isDirectoryRead(uri);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest req,
+                                    HttpServletResponse res,
+                                    FilterChain chain)
+            throws ServletException, IOException {
+
+        String uri = req.getRequestURI();
+        if (isProductDetail(uri)) {
+            filterDetail(req, res, chain);
+            return;
+        }
+
+        // version doc TRUOC khi chay controller: body co the moi hon ETag (lan sau tai lai), khong bao gio cu hon
+        String etag;
+        long lastModified;
+        String cacheControl;
+        if (isDirectoryRead(uri)) {
+            etag = directoryEtag;
+            lastModified = directoryLastModified;
+            cacheControl = "public, max-age=" + directoryMaxAge;
+        } else {
+            etag = "W/\"c-" + catalogVersion.current() + "\"";
+            lastModified = catalogVersion.lastModified().toEpochMilli();
+            cacheControl = "public, max-age=" + catalogMaxAge
+                    + ", stale-while-revalidate=" + catalogStaleWhileRevalidate;
+        }
+
+        if (notModified(req, etag, lastModified)) {
+            setValidators(res, etag, lastModified, cacheControl);
+            res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return; // khong goi controller
+        }
+
+        NoStoreOnError buffered = new NoStoreOnError(res);
+        runChain(req, res, chain, buffered);
+        if (isSuccess(buffered.getStatus())) {
+            setValidators(res, etag, lastModified, cacheControl);
+        } else {
+            noStore(res);
+        }
+        buffered.copyBodyToResponse();
+    }
+
+    // ton kho doi lien tuc: moi lan deu hoi lai server, chi 304 khi noi dung khong doi
+    private void filterDetail(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
+            throws ServletException, IOException {
+        NoStoreOnError buffered = new NoStoreOnError(res);
+        runChain(req, res, chain, buffered);
+        if (!isSuccess(buffered.getStatus())) {
+            noStore(res);
+        } else {
+            res.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+            // HEAD khong co body de bam
+            if ("GET".equals(req.getMethod())) {
+                String etag = etagOf(buffered.getContentAsByteArray());
+                res.setHeader(HttpHeaders.ETAG, etag);
+                if (notModified(req, etag, -1)) {
+                    res.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                    return; // bo body da dem
+                }
+            }
+        }
+        buffered.copyBodyToResponse();
+    }
+
+    private static void runChain(HttpServletRequest req, HttpServletResponse res, FilterChain chain,
+                                 NoStoreOnError buffered) throws ServletException, IOException {
+        try {
+            chain.doFilter(req, buffered);
+        } catch (ServletException | IOException | RuntimeException ex) {
+            noStore(res);
+            throw ex;
+        }
+    }
+
+    private static boolean isSuccess(int status) {
+        return status >= 200 && status < 300;
+    }
+
+    private static void setValidators(HttpServletResponse res, String etag, long lastModified, String cacheControl) {
+        res.setHeader(HttpHeaders.ETAG, etag);
+        res.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        res.setHeader(HttpHeaders.CACHE_CONTROL, cacheControl);
+    }
+
+    // loi (4xx/5xx) khong duoc cache cong khai
+    private static void noStore(HttpServletResponse res) {
+        res.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+
+    // cung noi dung => cung ETag tren moi instance
+    private static String etagOf(byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body);
+        return "\"p-" + Long.toHexString(crc.getValue()) + "-" + body.length + "\"";
+    }
+
+    // sendError commit response ngay (trang loi), nen dat no-store truoc
+    private static final class NoStoreOnError extends ContentCachingResponseWrapper {
+        NoStoreOnError(HttpServletResponse res) {
+            super(res);
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            noStore(this);
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            noStore(this);
+            super.sendError(sc, msg);
+        }
+    }
+
+    private static boolean notModified(HttpServletRequest req, String etag, long lastModified) {
+        String ifNoneMatch = req.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            // If-None-Match thang If-Modified-Since (RFC 9110)
+            String opaque = stripWeak(etag);
+            for (String candidate : ifNoneMatch.split(",")) {
+                String c = candidate.trim();
+                if (c.equals("*") || stripWeak(c).equals(opaque)) return true;
+            }
+            return false;
+        }
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = req.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+        // header chi chinh xac toi giay
+        return ifModifiedSince >= 0 && lastModified >= 0 && lastModified / 1000 <= ifModifiedSince / 1000;
+    }
+
+    private static String stripWeak(String tag) {
+        return tag.startsWith("W/") ? tag.substring(2) : tag;
+    }
+}
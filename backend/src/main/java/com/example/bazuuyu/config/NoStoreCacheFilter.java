@@ -20,12 +20,20 @@ public class NoStoreCacheFilter extends OncePerRequestFilter {
 
         String uri = req.getRequestURI();
         // apply to your API only (adjust prefix if needed)
-        if (uri.startsWith("/api/")) {
+        // public catalog GETs get ETag/max-age from CatalogConditionalGetFilter instead
+        if (uri.startsWith("/api/") && !isPublicCatalogRead(req, uri)) {
             res.setHeader("Cache-Control", "no-store, no-cache, max-age=0, must-revalidate");
             res.setHeader("Pragma", "no-cache");
             res.setDateHeader("Expires", 0);
         }
         chain.doFilter(req, res);
     }
+
+    private static boolean isPublicCatalogRead(HttpServletRequest req, String uri) {
+        boolean read = "GET".equals(req.getMethod()) || "HEAD".equals(req.getMethod());
+        return read && (CatalogConditionalGetFilter.isCatalogRead(uri)
+                || CatalogConditionalGetFilter.isDirectoryRead(uri)
+                || uri.startsWith("/api/storefront/")); // ETag/Cache-Control do StorefrontController dat
+    }
 }
 
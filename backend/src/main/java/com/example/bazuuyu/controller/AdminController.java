@@ -8,6 +8,7 @@ import com.example.bazuuyu.entity.Admin;
 import com.example.bazuuyu.entity.Product;
 import com.example.bazuuyu.entity.ProductImage;
 import com.example.bazuuyu.entity.Role;
+import com.example.bazuuyu.inventory.FlashSaleStock;
 import com.example.bazuuyu.mapper.AdminMapper;
 import com.example.bazuuyu.mapper.OrderItemMapper;
 import com.example.bazuuyu.mapper.OrderMapper;
@@ -26,6 +27,7 @@ import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.server.ResponseStatusException;
 
 import java.io.IOException;
+import java.time.LocalDateTime;
 import java.util.List;
 
 /**
@@ -43,6 +45,7 @@ public class AdminController {
     private final PasswordEncoder passwordEncoder;
     private final OrderService orderService;
     private final OrderItemService orderItemService;
+    private final FlashSaleStock flashSaleStock;
 
 
     // tao admin moi. chi SUPER_ADMIN moi duoc phep goi API nay.
@@ -221,6 +224,29 @@ public class AdminController {
         return ResponseEntity.noContent().build();
     }
 
+    // bat flash sale cho 1 SKU trong `minutes` phut; goi lai de gia han/doi leaseSize
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN','ROLE_SUPER_ADMIN')")
+    @PostMapping("/flash-sales/{variantId}")
+    public ResponseEntity<Void> startFlashSale(
+            @PathVariable Long variantId,
+            @RequestParam(defaultValue = "60") int minutes,
+            @RequestParam(defaultValue = "20") int leaseSize
+    ) {
+        if (minutes <= 0 || leaseSize <= 0) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "minutes and leaseSize must be positive");
+        }
+        flashSaleStock.start(variantId, leaseSize, LocalDateTime.now().plusMinutes(minutes));
+        return ResponseEntity.noContent().build();
+    }
+
+    // ket thuc flash sale ngay: ton kho chua ban duoc tra ve product_variant
+    @PreAuthorize("hasAnyAuthority('ROLE_ADMIN','ROLE_SUPER_ADMIN')")
+    @DeleteMapping("/flash-sales/{variantId}")
+    public ResponseEntity<Void> endFlashSale(@PathVariable Long variantId) {
+        flashSaleStock.end(variantId);
+        return ResponseEntity.noContent().build();
+    }
+
 
 
 
@@ -4,6 +4,7 @@ import com.example.bazuuyu.dto.request.CartMergeRequest;
 import com.example.bazuuyu.dto.request.CreateCartItemRequest;
 import com.example.bazuuyu.dto.request.GuestCartItem;
 import com.example.bazuuyu.dto.response.CartResponse;
+import com.example.bazuuyu.dto.response.CartSummaryResponse;
 import com.example.bazuuyu.entity.Cart;
 import com.example.bazuuyu.entity.CartItem;
 import com.example.bazuuyu.security.JwtUtils;
@@ -11,6 +12,7 @@ import com.example.bazuuyu.service.CartItemService;
 import com.example.bazuuyu.service.CartService;
 import com.example.bazuuyu.service.CustomerService;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
@@ -36,10 +38,11 @@ public class CartController {
     @PostMapping("/items")
     public ResponseEntity<Void> addToCart(
             HttpServletRequest request,
+            HttpServletResponse response,
             @RequestBody @Valid CreateCartItemRequest body
     ) {
-        // resolve current cart (by JWT or GUEST_ID cookie)
-        Cart cart = cartService.getOrCreateActiveCartForRequest(request, jwtUtils, customerService);
+        // resolve current cart (by JWT or GUEST_ID cookie); first add of a guest issues the cookie + creates the cart
+        Cart cart = cartService.getOrCreateActiveCartForRequest(request, response, jwtUtils, customerService);
 
         // attach cartId for service
         body.setCartId(cart.getId());
@@ -53,8 +56,18 @@ public class CartController {
     // ----------------------------------------------------
     @GetMapping("/items/current")
     public ResponseEntity<List<CartItem>> getCurrentCartItems(HttpServletRequest request) {
-        Cart cart = cartService.getOrCreateActiveCartForRequest(request, jwtUtils, customerService);
-        return ResponseEntity.ok(cartService.getCartItems(cart.getId()));
+        // read only: no cart yet => empty list, nothing written
+        return ResponseEntity.ok(cartService.findActiveCartForRequest(request, jwtUtils, customerService)
+                .map(cart -> cartService.getCartItems(cart.getId()))
+                .orElse(List.of()));
+    }
+
+    // ----------------------------------------------------
+    // CART BADGE: line count + quantity + total, 1 aggregate query (guest or logged-in)
+    // ----------------------------------------------------
+    @GetMapping("/summary")
+    public ResponseEntity<CartSummaryResponse> getSummary(HttpServletRequest request) {
+        return ResponseEntity.ok(cartService.getSummary(request, jwtUtils, customerService));
     }
 
     // ---------------- OLD CUSTOMER-SPECIFIC ENDPOINTS (optional) ----------------
@@ -103,10 +116,11 @@ public class CartController {
     @PostMapping("/guest/load")
     public ResponseEntity<Void> loadGuestCart(
             HttpServletRequest request,
+            HttpServletResponse response,
             @RequestBody List<GuestCartItem> items
     ) {
         // resolve (or create) guest cart using GUEST_ID cookie
-        Cart cart = cartService.getOrCreateActiveCartForRequest(request, jwtUtils, customerService);
+        Cart cart = cartService.getOrCreateActiveCartForRequest(request, response, jwtUtils, customerService);
 
         // clear old items (optional but usually what we want)
         cartItemService.clearItemsByCart(cart);
@@ -6,10 +6,12 @@ import com.example.bazuuyu.dto.response.OrderResponse;
 import com.example.bazuuyu.entity.Cart;
 import com.example.bazuuyu.entity.Customer;
 import com.example.bazuuyu.entity.Order;
+import com.example.bazuuyu.exception.InsufficientStockException;
 import com.example.bazuuyu.mapper.OrderMapper;
 import com.example.bazuuyu.security.JwtUtils;
 import com.example.bazuuyu.service.CartService;
 import com.example.bazuuyu.service.CustomerService;
+import com.example.bazuuyu.service.IdempotencyService;
 import com.example.bazuuyu.service.OrderService;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
@@ -34,6 +36,7 @@ public class OrderController {
     private final OrderService orderService;
     private final CustomerService customerService;
     private final JwtUtils jwtUtils;
+    private final IdempotencyService idempotencyService;
 
     // ----------------------------------------------------
     // SIMPLE CHECKOUT BY CUSTOMER ID (if you need it)
@@ -147,6 +150,7 @@ public class OrderController {
     @PostMapping("/checkout")
     public ResponseEntity<OrderResponse> checkout(
             HttpServletRequest request,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey,
             @RequestBody ShippingAddressRequest shipping
     ) {
         log.info("=== /api/orders/checkout START ===");
@@ -161,10 +165,25 @@ public class OrderController {
                 shipping.getCountry()
         );
 
+        // retry cung key: tra lai don da tao, khong doc/ghi gio hang lan nua.
+        // khong co key => khong can dau van tay, khong doc JWT them 1 lan
+        boolean keyed = idempotencyKey != null && !idempotencyKey.isBlank();
+        IdempotencyService.Result<OrderResponse> result = idempotencyService.execute(
+                "checkout", idempotencyKey, keyed ? List.of(caller(request), shipping) : null, OrderResponse.class,
+                () -> placeOrderForRequest(request, shipping));
+        if (result.replayed()) {
+            log.info("Checkout replayed for Idempotency-Key, orderId={}", result.body().getId());
+            return ResponseEntity.ok().header(IdempotencyService.REPLAYED_HEADER, "true").body(result.body());
+        }
+        return ResponseEntity.ok(result.body());
+    }
+
+    private OrderResponse placeOrderForRequest(HttpServletRequest request, ShippingAddressRequest shipping) {
         Cart cart;
         try {
-            // ✅ resolve cart (guest or logged-in) using cookie/JWT
-            cart = cartService.getOrCreateActiveCartForRequest(request, jwtUtils, customerService);
+            // ✅ resolve cart (guest or logged-in) using cookie/JWT; never creates one
+            cart = cartService.findActiveCartForRequest(request, jwtUtils, customerService)
+                    .orElseThrow(() -> new IllegalStateException("Cart is empty"));
         } catch (RuntimeException ex) {
             log.warn("Checkout – cannot resolve cart: {}", ex.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
@@ -179,16 +198,34 @@ public class OrderController {
             log.info("Order placed successfully. orderId={}", order.getId());
             log.info("=== /api/orders/checkout END OK ===");
 
-            return ResponseEntity.ok(OrderMapper.toResponse(order));
+            return OrderMapper.toResponse(order);
         } catch (IllegalStateException ex) {
             // "Cart not found", "Cart is empty", etc.
             log.warn("Business error during checkout: {}", ex.getMessage());
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        } catch (InsufficientStockException ex) {
+            log.warn("Checkout rejected: {}", ex.getMessage());
+            throw ex; // 409 (GlobalExceptionHandler)
         } catch (Exception ex) {
             log.error("Unexpected error during checkout", ex);
             throw ex; // will become 500
         }
     }
 
+    // nguoi goi cho dau van tay Idempotency-Key: username trong JWT, khong thi cookie GUEST_ID.
+    // token sai/het han => 400 nhu luc resolve gio hang
+    private String caller(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            return "guest:" + extractGuestIdFromCookies(request);
+        }
+        try {
+            return "customer:" + jwtUtils.getUsernameFromToken(authHeader.substring(7));
+        } catch (RuntimeException ex) {
+            log.warn("Checkout – cannot resolve caller: {}", ex.getMessage());
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
 
 }
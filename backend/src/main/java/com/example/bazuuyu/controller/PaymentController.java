@@ -1,6 +1,7 @@
 package com.example.bazuuyu.controller;
 
 import com.example.bazuuyu.entity.Order;
+import com.example.bazuuyu.service.IdempotencyService;
 import com.example.bazuuyu.service.OrderService;
 import com.example.bazuuyu.utils.MoneyUtil;
 import lombok.RequiredArgsConstructor;
@@ -20,15 +21,25 @@ import java.util.*;
 public class PaymentController {
 
     private final OrderService orderService;
+    private final IdempotencyService idempotencyService;
     @Value("${vnpay.tmn-code}")   private String vnpTmnCode;
     @Value("${vnpay.hash-secret}")private String vnpHashSecret;
     @Value("${vnpay.pay-url}")    private String vnpPayUrl;
     @Value("${vnpay.return-url}") private String vnpReturnUrl;
     // ✅ COD checkout
     @PostMapping("/cod/{orderCode}")
-    public ResponseEntity<String> payWithCod(@PathVariable String orderCode) {
-        orderService.markCodPending(orderCode);
-        return ResponseEntity.ok("Order placed with COD, awaiting delivery.");
+    public ResponseEntity<String> payWithCod(
+            @PathVariable String orderCode,
+            @RequestHeader(value = IdempotencyService.KEY_HEADER, required = false) String idempotencyKey) {
+        IdempotencyService.Result<String> result = idempotencyService.execute(
+                "cod", idempotencyKey, orderCode, String.class, () -> {
+                    orderService.markCodPending(orderCode);
+                    return "Order placed with COD, awaiting delivery.";
+                });
+        if (result.replayed()) {
+            return ResponseEntity.ok().header(IdempotencyService.REPLAYED_HEADER, "true").body(result.body());
+        }
+        return ResponseEntity.ok(result.body());
     }
 
     // ✅ Start VNPAY payment (QR, Domestic, Intl)
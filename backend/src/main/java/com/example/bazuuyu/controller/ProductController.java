@@ -1,6 +1,9 @@
 package com.example.bazuuyu.controller;
 
+import com.example.bazuuyu.catalog.related.RelatedProductsIndex;
 import com.example.bazuuyu.dto.request.ProductRequest;
+import com.example.bazuuyu.dto.response.CursorPageResponse;
+import com.example.bazuuyu.dto.response.ProductCardResponse;
 import com.example.bazuuyu.dto.response.ProductResponse;
 import com.example.bazuuyu.entity.Category;
 import com.example.bazuuyu.entity.Product;
@@ -9,9 +12,11 @@ import com.example.bazuuyu.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
@@ -24,6 +29,7 @@ import java.util.List;
 public class ProductController {
 
     private final ProductService productService;
+    private final RelatedProductsIndex relatedIndex;
 
     // tao san pham moi tu thong tin request
     @PostMapping
@@ -43,12 +49,31 @@ public class ProductController {
         return ResponseEntity.ok(productService.listProducts(category, PageRequest.of(page, size)));
     }
 
+    // listing nhe cho trang danh muc: chi du lieu the san pham, 1 query cho moi trang
+    @GetMapping("/cards")
+    public ResponseEntity<Page<ProductCardResponse>> listCards(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "24") int size,
+            @RequestParam(required = false) Category category
+    ) {
+        return ResponseEntity.ok(productService.listProductCards(category, page, size));
+    }
+
     // lay chi tiet san pham theo ID
     @GetMapping("/{id}")
     public ResponseEntity<ProductResponse> getProductById(@PathVariable Long id) {
-        Product product = productService.findById(id)
+        ProductResponse product = productService.findResponseById(id)
                 .orElseThrow(() -> new RuntimeException("Product not found with id: " + id));
-        return ResponseEntity.ok(ProductMapper.toResponse(product));
+        return ResponseEntity.ok(product);
+    }
+
+    // "thuong duoc mua cung": doc tu RelatedProductsIndex trong bo nho, khong query
+    @GetMapping("/{id}/related")
+    public ResponseEntity<List<ProductCardResponse>> getRelated(
+            @PathVariable Long id,
+            @RequestParam(defaultValue = "8") int limit) {
+        int n = Math.min(Math.max(limit, 1), relatedIndex.topK());
+        return ResponseEntity.ok(relatedIndex.relatedTo(id, n));
     }
 
     // cap nhap thong tin san pham theo ID
@@ -70,9 +95,10 @@ public class ProductController {
     }
 
     @GetMapping("/new-arrivals")
-    public ResponseEntity<List<ProductResponse>> getNewArrivals() {
-        List<ProductResponse> products = productService.getNewArrivals();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<Page<ProductResponse>> getNewArrivals(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "24") int size) {
+        return ResponseEntity.ok(productService.getNewArrivals(page, size));
     }
 
     @GetMapping("/landing-new-arrivals")
@@ -87,10 +113,25 @@ public class ProductController {
         return ResponseEntity.ok(productService.getSortedProducts(sortBy));
     }
 
+    // keyset mode: ?cursor= (rong cho trang dau) roi gui lai nextCursor
+    @GetMapping(value = "/shop", params = "cursor")
+    public ResponseEntity<CursorPageResponse<ProductResponse>> getSortedProductsPage(
+            @RequestParam(defaultValue = "latest") String sortBy,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "24") int size) {
+        try {
+            return ResponseEntity.ok(productService.getSortedProducts(sortBy, cursor, size));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
     @GetMapping("/best-sellers")
-    public ResponseEntity<List<ProductResponse>> getBestSellers() {
-        List<ProductResponse> products = productService.getBestSellers();
-        return ResponseEntity.ok(products);
+    public ResponseEntity<Page<ProductResponse>> getBestSellers(
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "24") int size,
+            @RequestParam(defaultValue = "30") int window) {
+        return ResponseEntity.ok(productService.getBestSellers(page, size, window));
     }
 
 
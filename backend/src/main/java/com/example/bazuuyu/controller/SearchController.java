@@ -1,20 +1,38 @@
 // src/main/java/com/example/bazuuyu/controller/SearchApiController.java
 package com.example.bazuuyu.controller;
 
+import com.example.bazuuyu.catalog.search.ProductSuggestIndex;
+import com.example.bazuuyu.dto.response.CursorPageResponse;
+import com.example.bazuuyu.dto.response.FacetedSearchResponse;
 import com.example.bazuuyu.dto.response.ProductResponse;
+import com.example.bazuuyu.dto.response.SuggestionResponse;
 import com.example.bazuuyu.service.ProductSearchService;
 import org.springframework.data.domain.Page;
+import org.springframework.http.HttpStatus;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 @RestController
 @RequestMapping("/api/search")
 public class SearchController {
 
+    private static final int MAX_SUGGESTIONS = 20;
+
     private final ProductSearchService service;
+    private final ProductSuggestIndex suggestIndex;
 
-    public SearchController(ProductSearchService service) {
+    public SearchController(ProductSearchService service, ProductSuggestIndex suggestIndex) {
         this.service = service;
+        this.suggestIndex = suggestIndex;
+    }
+
+    // typeahead: ten san pham + danh muc theo prefix, doc tu index trong bo nho
+    @GetMapping("/suggest")
+    public SuggestionResponse suggest(
+            @RequestParam(defaultValue = "") String q,
+            @RequestParam(defaultValue = "8") int limit) {
+        return suggestIndex.suggest(q, Math.min(limit, MAX_SUGGESTIONS));
     }
 
     @GetMapping
@@ -26,6 +44,32 @@ public class SearchController {
         return service.search(keyword, category, page, size);
     }
 
+    // them facet counts (category, khoang gia, con hang, ban chay/hang moi) cho bo loc
+    @GetMapping(params = {"facets=true", "!cursor"})
+    public FacetedSearchResponse searchWithFacets(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String category,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "24") int size) {
+        return new FacetedSearchResponse(
+                service.search(keyword, category, page, size),
+                service.facets(keyword, category));
+    }
+
+    // keyset mode: ?cursor= (rong cho trang dau) roi gui lai nextCursor
+    @GetMapping(params = "cursor")
+    public CursorPageResponse<ProductResponse> searchByCursor(
+            @RequestParam(required = false) String keyword,
+            @RequestParam(required = false) String category,
+            @RequestParam String cursor,
+            @RequestParam(defaultValue = "24") int size) {
+        try {
+            return service.searchAfter(keyword, category, cursor, size);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, ex.getMessage());
+        }
+    }
+
 
     @GetMapping("/search")
     public String searchView(
@@ -0,0 +1,37 @@
+package com.example.bazuuyu.controller;
+
+import com.example.bazuuyu.service.StorefrontLandingService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Duration;
+
+/**
+ * API tong hop cho storefront (landing page), doc tu snapshot trong bo nho.
+ */
+@RestController
+@RequestMapping("/api/storefront")
+@RequiredArgsConstructor
+public class StorefrontController {
+
+    private final StorefrontLandingService landingService;
+
+    // JSON da serialize san; ETag theo noi dung (giong nhau giua cac instance) => If-None-Match tra 304
+    @GetMapping("/landing")
+    public ResponseEntity<byte[]> landing() {
+        StorefrontLandingService.Snapshot s = landingService.current();
+        if (s == null) return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(s.etag())
+                .lastModified(s.builtAt())
+                .cacheControl(CacheControl.maxAge(Duration.ofSeconds(30)).cachePublic())
+                .body(s.json());
+    }
+}
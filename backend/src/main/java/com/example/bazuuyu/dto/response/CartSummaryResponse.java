@@ -0,0 +1,19 @@
+package com.example.bazuuyu.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+
+/**
+ * tom tat gio hang cho badge tren header (/api/cart/summary): khong kem danh sach dong.
+ */
+@Getter
+@AllArgsConstructor
+public class CartSummaryResponse {
+    public static final CartSummaryResponse EMPTY = new CartSummaryResponse(0, 0, BigDecimal.ZERO);
+
+    private int lineCount;       // so dong trong gio
+    private int itemCount;       // tong so luong
+    private BigDecimal totalPrice;
+}
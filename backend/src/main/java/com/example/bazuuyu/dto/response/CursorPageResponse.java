@@ -0,0 +1,29 @@
+package com.example.bazuuyu.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * mot trang keyset: khong co totalElements (khong chay COUNT(*)).
+ * nextCursor == null => het du lieu.
+ */
+@Getter
+@AllArgsConstructor
+public class CursorPageResponse<T> {
+    private List<T> content;
+    private String nextCursor;
+    private int size;
+
+    // rows duoc query voi limit = size + 1 de biet con trang sau hay khong
+    public static <E, T> CursorPageResponse<T> of(List<E> rows, int size,
+                                                  Function<E, T> mapper,
+                                                  Function<E, String> cursorOf) {
+        boolean hasNext = rows.size() > size;
+        List<E> page = hasNext ? rows.subList(0, size) : rows;
+        String next = hasNext ? cursorOf.apply(page.get(page.size() - 1)) : null;
+        return new CursorPageResponse<>(page.stream().map(mapper).toList(), next, size);
+    }
+}
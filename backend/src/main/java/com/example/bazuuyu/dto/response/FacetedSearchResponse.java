@@ -0,0 +1,13 @@
+package com.example.bazuuyu.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.springframework.data.domain.Page;
+
+// /api/search?facets=true
+@Getter
+@AllArgsConstructor
+public class FacetedSearchResponse {
+    private Page<ProductResponse> results;
+    private SearchFacetsResponse facets;
+}
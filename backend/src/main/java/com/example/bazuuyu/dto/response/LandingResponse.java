@@ -0,0 +1,17 @@
+package com.example.bazuuyu.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * du lieu cua landing page trong 1 lan goi (/api/storefront/landing).
+ * chi noi dung san pham: ETag la CRC cua body nen khong co thoi diem build (gui qua Last-Modified).
+ */
+@Getter
+@AllArgsConstructor
+public class LandingResponse {
+    private List<ProductCardResponse> newArrivals;
+    private List<ProductCardResponse> bestSellers;
+}
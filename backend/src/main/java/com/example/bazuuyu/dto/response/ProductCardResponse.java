@@ -0,0 +1,25 @@
+package com.example.bazuuyu.dto.response;
+
+import com.example.bazuuyu.entity.Category;
+import lombok.*;
+
+import java.math.BigDecimal;
+
+/**
+ * du lieu toi thieu cho 1 the san pham o trang listing (khong co description/variants/anh phu).
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class ProductCardResponse {
+    private Long id;
+    private String name;
+    private Category category;
+    private String mainImageUrl;
+    private BigDecimal displayPrice;
+    private boolean inStock;
+    private boolean isBestSeller;
+    private boolean isNewArrival;
+}
@@ -27,4 +27,7 @@ public class ProductResponse {
     private List<String> storyImageUrls;
 
     private List<ProductVariantResponse> variants;
+
+    // chi co khi search.engine=fulltext: doan trich co <mark>...</mark>
+    private String highlight;
 }
@@ -0,0 +1,31 @@
+package com.example.bazuuyu.dto.response;
+
+import com.example.bazuuyu.entity.Category;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+// so luong san pham theo tung bo loc, tinh tren cung tap ket qua search
+@Getter
+@Builder
+public class SearchFacetsResponse {
+    private Map<Category, Long> categories;
+    private List<PriceBucket> priceBuckets;
+    private long inStock;
+    private long outOfStock;
+    private long bestSeller;
+    private long newArrival;
+
+    // [min, max) theo gia hien thi; max == null => khong gioi han
+    @Getter
+    @AllArgsConstructor
+    public static class PriceBucket {
+        private BigDecimal min;
+        private BigDecimal max;
+        private long count;
+    }
+}
@@ -0,0 +1,22 @@
+package com.example.bazuuyu.dto.response;
+
+import com.example.bazuuyu.entity.Category;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+// ket qua /api/search/suggest
+@Getter
+@AllArgsConstructor
+public class SuggestionResponse {
+    private List<Item> products;
+    private List<Category> categories;
+
+    @Getter
+    @AllArgsConstructor
+    public static class Item {
+        private Long id;
+        private String name;
+    }
+}
@@ -16,6 +16,12 @@ import java.util.List;
 @AllArgsConstructor
 @Builder
 @Entity
+@Table(indexes = { // cung index trong V16
+        @Index(name = "idx_cart_customer_status", columnList = "customer_id, status"),
+        @Index(name = "idx_cart_guest_status", columnList = "guest_id, status"),
+        @Index(name = "idx_cart_guest_activity", columnList = "customer_id, updated_at"), // CartPurgeJob: guest
+        @Index(name = "idx_cart_status_checked_out", columnList = "status, checked_out_at") // CartPurgeJob
+})
 public class Cart {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,7 +37,18 @@ public class Cart {
     private LocalDateTime createdAt;
     private String status; // e.g., ACTIVE, SAVED, CHECKED_OUT
 
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt; // hoat dong cuoi: tao gio, them/sua dong (CartRepository.touch)
+
+    @Column(name = "checked_out_at")
+    private LocalDateTime checkedOutAt; // luc checkout
+
     @OneToMany(mappedBy = "cart", cascade = CascadeType.ALL)
     private List<CartItem> items = new ArrayList<>(); // danh sach cac san pham trong gio hang
 
+    @PrePersist
+    protected void onCreate() {
+        if (createdAt == null) createdAt = LocalDateTime.now();
+        if (updatedAt == null) updatedAt = createdAt;
+    }
 }
\ No newline at end of file
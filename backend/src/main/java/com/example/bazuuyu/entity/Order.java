@@ -21,8 +21,10 @@ import jakarta.persistence.*;
 public class Order {
     public enum PaymentChannel { COD, VNPAY_QR, VNPAY_DOMESTIC,VNPAY_INTL }
     public enum OrderStatus { CREATED, AWAITING_PAYMENT, COD_PENDING, PAID, CANCELED, EXPIRED }
+    // sequence pooled (50 id moi lan goi nextval) thay IDENTITY: Hibernate moi gom duoc INSERT thanh JDBC batch
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "orders_seq")
+    @SequenceGenerator(name = "orders_seq", sequenceName = "orders_seq", allocationSize = 50)
     private Long id;
 
     private String orderCode; //unique code sent to VNPAY (TxnRef)
@@ -46,7 +48,7 @@ public class Order {
     @JoinColumn(name = "customer_id")
     private Customer customer; // kh da dat don
 
-    @OneToMany(cascade = CascadeType.ALL)
-    @JoinColumn(name = "order_id")
+    // OrderItem.order giu cot order_id => khong con UPDATE order_item SET order_id cho tung dong sau INSERT
+    @OneToMany(mappedBy = "order", cascade = CascadeType.ALL)
     private List<OrderItem> items; // danh sach cac muc trong don hang
 }
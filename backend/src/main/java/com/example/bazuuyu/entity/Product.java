@@ -2,6 +2,7 @@ package com.example.bazuuyu.entity;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
+import com.example.bazuuyu.utils.VietnameseNormalizer;
 import lombok.*;
 import org.hibernate.annotations.JdbcTypeCode;
 import org.hibernate.type.SqlTypes;
@@ -46,9 +47,24 @@ public class Product {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    // name + description da bo dau (VietnameseNormalizer), index trigram/tsvector o V6
+    @Column(name = "search_text", columnDefinition = "text")
+    private String searchText;
+
     @PrePersist
     protected void onCreate() {
         this.createdAt = LocalDateTime.now();
+        refreshSearchText();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        refreshSearchText();
+    }
+
+    private void refreshSearchText() {
+        this.searchText = VietnameseNormalizer.normalize(
+                (name == null ? "" : name) + " " + (description == null ? "" : description));
     }
 
     @Column(name = "is_best_seller")
@@ -73,10 +89,12 @@ public class Product {
 
     @JsonIgnore
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
     private List<ProductImage> productImages = new ArrayList<>();
 
     @JsonIgnore
     @OneToMany(mappedBy = "product", cascade = CascadeType.ALL, orphanRemoval = true)
+    @Builder.Default
     private List<ProductVariant> variants = new ArrayList<>();
 
     public void addImage(ProductImage img) {
@@ -0,0 +1,48 @@
+package com.example.bazuuyu.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * ban sao phi chuan hoa cua 1 san pham cho trang listing (bang product_card, V7).
+ * chi ProductCardWriter ghi vao, trong cung transaction ghi san pham.
+ */
+@Entity
+@Table(name = "product_card")
+@Getter
+@Setter
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductCard {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    private String name;
+
+    @Enumerated(EnumType.STRING)
+    private Category category;
+
+    @Column(name = "main_image_url", length = 2048)
+    private String mainImageUrl;
+
+    @Column(name = "display_price", precision = 18, scale = 2, nullable = false)
+    private BigDecimal displayPrice;
+
+    @Column(name = "in_stock", nullable = false)
+    private boolean inStock;
+
+    @Column(name = "is_best_seller", nullable = false)
+    private boolean isBestSeller;
+
+    @Column(name = "is_new_arrival", nullable = false)
+    private boolean isNewArrival;
+
+    @Column(name = "created_at")
+    private LocalDateTime createdAt;
+}
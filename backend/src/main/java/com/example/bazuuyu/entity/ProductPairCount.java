@@ -0,0 +1,39 @@
+package com.example.bazuuyu.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+
+/**
+ * so don da hoan tat co ca 2 san pham (bang product_pair_count, V9). luon productA < productB.
+ */
+@Entity
+@Table(name = "product_pair_count")
+@IdClass(ProductPairCount.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductPairCount {
+
+    @Id
+    @Column(name = "product_a")
+    private Long productA;
+
+    @Id
+    @Column(name = "product_b")
+    private Long productB;
+
+    private int cnt;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long productA;
+        private Long productB;
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.bazuuyu.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.io.Serializable;
+import java.time.LocalDate;
+
+/**
+ * so luong ban cua 1 san pham/variant trong 1 ngay (bang product_sales_bucket, V8).
+ * variantId = 0 => san pham khong co variant.
+ */
+@Entity
+@Table(name = "product_sales_bucket")
+@IdClass(ProductSalesBucket.Key.class)
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class ProductSalesBucket {
+
+    @Id
+    @Column(name = "product_id")
+    private Long productId;
+
+    @Id
+    @Column(name = "variant_id")
+    private Long variantId;
+
+    @Id
+    @Column(name = "sale_date")
+    private LocalDate saleDate;
+
+    private int units;
+
+    @Getter
+    @Setter
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @EqualsAndHashCode
+    public static class Key implements Serializable {
+        private Long productId;
+        private Long variantId;
+        private LocalDate saleDate;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bazuuyu.exception;
+
+/**
+ * Idempotency-Key da dung cho 1 request khac (khac nguoi goi hoac khac body): khong replay, khong chay lai.
+ */
+public class IdempotencyKeyReusedException extends RuntimeException {
+    public IdempotencyKeyReusedException() {
+        super("Idempotency-Key was already used for a different request");
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.bazuuyu.exception;
+
+import java.util.List;
+
+/**
+ * mot hoac nhieu dong trong gio khong du ton kho luc checkout (ca don bi rollback).
+ */
+public class InsufficientStockException extends RuntimeException {
+
+    private final List<String> shortLines;
+
+    public InsufficientStockException(List<String> shortLines) {
+        super("Insufficient stock for " + String.join(", ", shortLines));
+        this.shortLines = List.copyOf(shortLines);
+    }
+
+    public List<String> getShortLines() {
+        return shortLines;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.bazuuyu.exception;
+
+/**
+ * thao tac khong hop le voi trang thai hien tai cua don (vd. chon COD cho don da thanh toan/da huy).
+ */
+public class InvalidOrderStateException extends RuntimeException {
+    public InvalidOrderStateException(String orderCode, Enum<?> status, String action) {
+        super("Order " + orderCode + " is " + status + ", cannot " + action);
+    }
+}
@@ -1,6 +1,9 @@
 package com.example.bazuuyu.handler;
 
 
+import com.example.bazuuyu.exception.IdempotencyKeyReusedException;
+import com.example.bazuuyu.exception.InsufficientStockException;
+import com.example.bazuuyu.exception.InvalidOrderStateException;
 import com.example.bazuuyu.exception.ResourceNotFoundException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -13,4 +16,22 @@ public class GlobalExceptionHandler {
     public ResponseEntity<String> handleNotFound(ResourceNotFoundException ex) {
         return ResponseEntity.status(404).body(ex.getMessage());
     }
+
+    // het hang luc checkout: 409 de client bao nguoi dung cap nhat gio
+    @ExceptionHandler(InsufficientStockException.class)
+    public ResponseEntity<String> handleOutOfStock(InsufficientStockException ex) {
+        return ResponseEntity.status(409).body(ex.getMessage());
+    }
+
+    // don da qua buoc nay (da thanh toan, da huy...): 409, client tai lai trang thai don
+    @ExceptionHandler(InvalidOrderStateException.class)
+    public ResponseEntity<String> handleInvalidOrderState(InvalidOrderStateException ex) {
+        return ResponseEntity.status(409).body(ex.getMessage());
+    }
+
+    // cung Idempotency-Key nhung request khac: loi cua client, khong replay ket qua cua nguoi khac
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ResponseEntity<String> handleKeyReused(IdempotencyKeyReusedException ex) {
+        return ResponseEntity.status(422).body(ex.getMessage());
+    }
 }
\ No newline at end of file
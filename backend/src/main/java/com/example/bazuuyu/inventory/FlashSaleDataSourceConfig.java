@@ -0,0 +1,39 @@
+package com.example.bazuuyu.inventory;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * pool ket noi rieng cho FlashSaleStock (thue/tra ton kho), cau hinh qua spring.datasource.flash.*.
+ * url/username/password chua dat => lay cua spring.datasource. defaultCandidate = false: DataSource chinh
+ * van do Spring Boot tu cau hinh, JPA/JdbcTemplate khong vo tinh dung pool nay; Spring dong pool khi tat.
+ */
+@Configuration(proxyBeanMethods = false)
+public class FlashSaleDataSourceConfig {
+
+    public static final String QUALIFIER = "flashSale";
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(QUALIFIER)
+    @ConfigurationProperties("spring.datasource.flash")
+    public DataSourceProperties flashSaleDataSourceProperties(DataSourceProperties main) {
+        // gia tri mac dinh; binder ghi de bang spring.datasource.flash.* neu co
+        DataSourceProperties p = new DataSourceProperties();
+        p.setUrl(main.determineUrl());
+        p.setUsername(main.determineUsername());
+        p.setPassword(main.determinePassword());
+        p.setDriverClassName(main.determineDriverClassName());
+        return p;
+    }
+
+    @Bean(defaultCandidate = false)
+    @Qualifier(QUALIFIER)
+    @ConfigurationProperties("spring.datasource.flash.hikari")
+    public HikariDataSource flashSaleDataSource(@Qualifier(QUALIFIER) DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
@@ -0,0 +1,233 @@
+package com.example.bazuuyu.inventory;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.BadSqlGrammarException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * ton kho flash sale trong bo nho cho cac SKU trong bang flash_sale.
+ * moi instance "thue" ton kho tu product_variant.stock theo lo lease_size (1 UPDATE cho ca lo, transaction rieng),
+ * roi nhan/tu choi checkout tren StripedStockCounter khong khoa. DB luon bang ton kho tru phan dang duoc thue
+ * => nhieu instance khong ban vuot. het dot sale / tat instance: phan chua ban duoc cong lai vao DB (doi soat).
+ * instance chet dot ngot: toi da lease_size don vi moi SKU bi "treo" (ban thieu, khong ban vuot), admin chinh tay.
+ * thue/tra dung pool rieng (FlashSaleDataSourceConfig, mac dinh 2 ket noi): luc cao diem moi ket noi cua pool
+ * chinh deu dang giu transaction checkout, thue bang pool chinh (REQUIRES_NEW) se cho ket noi mai.
+ */
+@Component
+@Import(FlashSaleDataSourceConfig.class)
+public class FlashSaleStock {
+
+    public enum Result { NOT_ON_SALE, TAKEN, SOLD_OUT }
+
+    private static final Logger log = LoggerFactory.getLogger(FlashSaleStock.class);
+    // DB het hang: khong hoi lai DB trong khoang nay (hang tra ve tu don het han/huy se duoc thue lai sau do)
+    private static final long SOLD_OUT_RECHECK_NANOS = Duration.ofSeconds(1).toNanos();
+
+    private static final class Sale {
+        final long variantId;
+        final long productId;
+        final int leaseSize;
+        final StripedStockCounter counter;
+        volatile boolean closed;
+        volatile long soldOutAt;
+        volatile boolean soldOut;
+
+        Sale(long variantId, long productId, int leaseSize, int stripes) {
+            this.variantId = variantId;
+            this.productId = productId;
+            this.leaseSize = leaseSize;
+            this.counter = new StripedStockCounter(stripes);
+        }
+    }
+
+    private final Map<Long, Sale> sales = new ConcurrentHashMap<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate newTx;
+    private final ApplicationEventPublisher events;
+    private final int stripes;
+
+    private volatile boolean tableMissing;
+
+    public FlashSaleStock(@Qualifier(FlashSaleDataSourceConfig.QUALIFIER) DataSource leasePool,
+                          ApplicationEventPublisher events,
+                          @Value("${flash-sale.stripes:0}") int stripes) {
+        this.jdbcTemplate = new JdbcTemplate(leasePool);
+        // pool rieng => luon la transaction moi, doc lap voi transaction checkout dang chay tren thread nay
+        this.newTx = new TransactionTemplate(new DataSourceTransactionManager(leasePool));
+        this.events = events;
+        this.stripes = stripes > 0 ? stripes : Runtime.getRuntime().availableProcessors() * 2;
+    }
+
+    public boolean isOnSale(Long variantId) {
+        return variantId != null && sales.containsKey(variantId);
+    }
+
+    /**
+     * tru qty tren bo dem cua SKU. chi khi bo dem can moi thue them tu DB (1 thread thue, cac thread khac cho).
+     * trong transaction checkout: rollback => tu dong tra qty lai bo dem.
+     */
+    public Result take(Long variantId, int qty) {
+        Sale sale = variantId == null ? null : sales.get(variantId);
+        if (sale == null) return Result.NOT_ON_SALE;
+        if (sale.counter.tryTake(qty)) {
+            onRollbackGiveBack(sale, qty);
+            return Result.TAKEN;
+        }
+        Result r = refillAndTake(sale, qty);
+        if (r == Result.TAKEN) onRollbackGiveBack(sale, qty);
+        return r;
+    }
+
+    private void onRollbackGiveBack(Sale sale, int qty) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) giveBack(sale, qty);
+                }
+            });
+        }
+    }
+
+    private Result refillAndTake(Sale sale, int qty) {
+        if (sale.soldOut && System.nanoTime() - sale.soldOutAt < SOLD_OUT_RECHECK_NANOS) return Result.SOLD_OUT;
+        synchronized (sale) {
+            while (true) {
+                if (sale.closed) return Result.NOT_ON_SALE; // vua het dot sale: di duong DB
+                if (sale.counter.tryTake(qty)) return Result.TAKEN;
+                if (sale.soldOut && System.nanoTime() - sale.soldOutAt < SOLD_OUT_RECHECK_NANOS) {
+                    return Result.SOLD_OUT;
+                }
+                int leased = lease(sale, Math.max(sale.leaseSize, qty));
+                if (leased == 0) {
+                    sale.soldOutAt = System.nanoTime();
+                    sale.soldOut = true;
+                    return Result.SOLD_OUT;
+                }
+                sale.soldOut = false;
+                sale.counter.add(leased);
+            }
+        }
+    }
+
+    // transaction rieng: lo da thue khong bi rollback cung 1 checkout that bai
+    private int lease(Sale sale, int want) {
+        int[] stockAndTaken = newTx.execute(s -> {
+            Integer stock = jdbcTemplate.query("SELECT stock FROM product_variant WHERE id = ? FOR UPDATE",
+                    rs -> rs.next() ? rs.getInt(1) : null, sale.variantId);
+            if (stock == null || stock <= 0) return new int[]{0, 0};
+            int n = Math.min(stock, want);
+            jdbcTemplate.update("UPDATE product_variant SET stock = stock - ? WHERE id = ?", n, sale.variantId);
+            return new int[]{stock, n};
+        });
+        // DB vua ve 0: product_card cap nhat theo transaction checkout hien tai
+        if (stockAndTaken[1] > 0 && stockAndTaken[0] == stockAndTaken[1]) {
+            events.publishEvent(new ProductChangedEvent(sale.productId));
+        }
+        return stockAndTaken[1];
+    }
+
+    private void giveBack(Sale sale, int qty) {
+        sale.counter.add(qty);
+        sale.soldOut = false;
+        // dot sale vua dong: close() co the da drain truoc khi cong => tu tra ve DB
+        if (sale.closed) returnToStock(sale, sale.counter.drain());
+    }
+
+    /** admin: bat (hoac gia han) flash sale cho 1 SKU den endsAt */
+    public void start(Long variantId, int leaseSize, LocalDateTime endsAt) {
+        if (leaseSize <= 0) throw new IllegalArgumentException("Lease size must be positive");
+        newTx.executeWithoutResult(s -> {
+            int updated = jdbcTemplate.update(
+                    "UPDATE flash_sale SET lease_size = ?, ends_at = ? WHERE variant_id = ?",
+                    leaseSize, Timestamp.valueOf(endsAt), variantId);
+            if (updated == 0) {
+                jdbcTemplate.update("INSERT INTO flash_sale (variant_id, lease_size, ends_at) VALUES (?, ?, ?)",
+                        variantId, leaseSize, Timestamp.valueOf(endsAt));
+            }
+        });
+        refresh();
+    }
+
+    /** admin: ket thuc ngay. instance nay doi soat luon, instance khac o lan refresh ke tiep */
+    public void end(Long variantId) {
+        jdbcTemplate.update(
+                "UPDATE flash_sale SET ends_at = CURRENT_TIMESTAMP WHERE variant_id = ? AND ends_at > CURRENT_TIMESTAMP",
+                variantId);
+        refresh();
+    }
+
+    // dong bo danh sach SKU dang sale voi bang flash_sale: SKU moi => bo dem rong (thue khi can), SKU het => doi soat
+    // bang flash_sale chua co (Flyway tat, vd. test H2): bo qua, khong log loi moi chu ky
+    @Scheduled(fixedDelayString = "${flash-sale.refresh-interval:PT5S}")
+    public synchronized void refresh() {
+        Map<Long, long[]> active;
+        try {
+            active = jdbcTemplate.query("""
+                    SELECT f.variant_id, v.product_id, f.lease_size
+                    FROM flash_sale f JOIN product_variant v ON v.id = f.variant_id
+                    WHERE f.starts_at <= CURRENT_TIMESTAMP AND f.ends_at > CURRENT_TIMESTAMP
+                    """, (rs, i) -> new long[]{rs.getLong(1), rs.getLong(2), rs.getInt(3)})
+                    .stream().collect(Collectors.toMap(r -> r[0], r -> r));
+        } catch (BadSqlGrammarException e) {
+            if (!tableMissing) log.info("Flash sale sync skipped, schema not ready: {}", e.getSQLException().getMessage());
+            tableMissing = true;
+            return;
+        }
+        tableMissing = false;
+
+        for (long[] r : active.values()) {
+            sales.computeIfAbsent(r[0], id -> {
+                log.info("Flash sale started for variant {}", id);
+                return new Sale(id, r[1], (int) r[2], stripes);
+            });
+        }
+        Set<Long> ended = sales.keySet().stream().filter(id -> !active.containsKey(id)).collect(Collectors.toSet());
+        ended.forEach(id -> close(sales.remove(id)));
+    }
+
+    // doi soat: khong nhan them, tra phan chua ban cua instance nay ve product_variant.stock
+    private void close(Sale sale) {
+        if (sale == null) return;
+        synchronized (sale) {
+            sale.closed = true;
+        }
+        int unsold = sale.counter.drain();
+        returnToStock(sale, unsold);
+        log.info("Flash sale closed for variant {}: returned {} unsold units", sale.variantId, unsold);
+    }
+
+    private void returnToStock(Sale sale, int units) {
+        if (units <= 0) return;
+        jdbcTemplate.update("UPDATE product_variant SET stock = stock + ? WHERE id = ?", units, sale.variantId);
+        events.publishEvent(new ProductChangedEvent(sale.productId));
+    }
+
+    // tat instance (deploy/scale down): tra lai ton kho dang thue, dot sale van chay tren instance khac
+    @PreDestroy
+    public void shutdown() {
+        Set.copyOf(sales.keySet()).forEach(id -> close(sales.remove(id))); // pool dong sau bean nay
+    }
+}
@@ -0,0 +1,72 @@
+package com.example.bazuuyu.inventory;
+
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * bo dem ton kho khong khoa, chia thanh nhieu stripe (moi stripe 1 cache line rieng) de nhieu thread
+ * tru cung 1 SKU khong tranh nhau 1 o nho. tong cac stripe khong bao gio am.
+ */
+public final class StripedStockCounter {
+
+    private static final int PAD = 16; // 16 int = 64 byte => 2 stripe khong chung cache line
+
+    private final AtomicIntegerArray cells;
+    private final int mask;
+
+    public StripedStockCounter(int stripes) {
+        int n = 1;
+        while (n < stripes) n <<= 1; // luy thua cua 2 >= stripes
+        this.cells = new AtomicIntegerArray(n * PAD);
+        this.mask = n - 1;
+    }
+
+    /** lay n don vi, bat dau tu stripe cua thread hien tai; khong du tong => tra lai phan da lay, false */
+    public boolean tryTake(int n) {
+        if (n <= 0) throw new IllegalArgumentException("Quantity must be positive");
+        int home = home();
+        int need = n;
+        for (int i = 0; i <= mask && need > 0; i++) {
+            int idx = ((home + i) & mask) * PAD;
+            for (;;) {
+                int v = cells.get(idx);
+                if (v == 0) break;
+                int t = Math.min(v, need);
+                if (cells.compareAndSet(idx, v, v - t)) {
+                    need -= t;
+                    break;
+                }
+            }
+        }
+        if (need == 0) return true;
+        if (need < n) add(n - need);
+        return false;
+    }
+
+    public void add(int n) {
+        if (n > 0) cells.addAndGet(home() * PAD, n);
+    }
+
+    /** lay het ve 0, tra ve so da lay (dung khi doi soat cuoi dot sale) */
+    public int drain() {
+        int total = 0;
+        for (int i = 0; i <= mask; i++) total += cells.getAndSet(i * PAD, 0);
+        return total;
+    }
+
+    /** gan dung khi co thread dang tru */
+    public int available() {
+        int total = 0;
+        for (int i = 0; i <= mask; i++) total += cells.get(i * PAD);
+        return total;
+    }
+
+    public int stripes() {
+        return mask + 1;
+    }
+
+    @SuppressWarnings("deprecation") // Thread.threadId() chi co tu Java 19
+    private int home() {
+        long id = Thread.currentThread().getId();
+        return (int) ((id * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    }
+}
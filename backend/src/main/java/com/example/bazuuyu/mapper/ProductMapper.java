@@ -1,9 +1,11 @@
 package com.example.bazuuyu.mapper;
 
 import com.example.bazuuyu.dto.request.ProductRequest;
+import com.example.bazuuyu.dto.response.ProductCardResponse;
 import com.example.bazuuyu.dto.response.ProductResponse;
 import com.example.bazuuyu.dto.response.ProductVariantResponse;
 import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.entity.ProductCard;
 import com.example.bazuuyu.entity.ProductImage;
 import com.example.bazuuyu.entity.ProductVariant;
 
@@ -70,6 +72,21 @@ public class ProductMapper {
                 .build();
     }
 
+    // chuyen doi tu ProductCard (bang product_card) sang the san pham cho listing
+    public static ProductCardResponse toCardResponse(ProductCard card) {
+        if (card == null) return null;
+        return ProductCardResponse.builder()
+                .id(card.getProductId())
+                .name(card.getName())
+                .category(card.getCategory())
+                .mainImageUrl(card.getMainImageUrl())
+                .displayPrice(card.getDisplayPrice())
+                .inStock(card.isInStock())
+                .isBestSeller(card.isBestSeller())
+                .isNewArrival(card.isNewArrival())
+                .build();
+    }
+
     private static ProductVariantResponse toVariantResponse(ProductVariant v) {
         if (v == null) return null;
         return ProductVariantResponse.builder()
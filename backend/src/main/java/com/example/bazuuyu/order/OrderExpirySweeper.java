@@ -0,0 +1,39 @@
+package com.example.bazuuyu.order;
+
+import com.example.bazuuyu.service.InventoryHoldService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * chuyen don het han giu hang sang EXPIRED va tra ton kho, moi lo 1 transaction.
+ * chay tren moi instance; SKIP LOCKED trong InventoryHoldService.expireDue chia viec giua cac instance.
+ */
+@Component
+public class OrderExpirySweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(OrderExpirySweeper.class);
+    private static final int MAX_BATCHES_PER_RUN = 50;
+
+    private final InventoryHoldService holdService;
+    private final int batchSize;
+
+    public OrderExpirySweeper(InventoryHoldService holdService,
+                              @Value("${inventory.hold.sweep-batch:100}") int batchSize) {
+        this.holdService = holdService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${inventory.hold.sweep-interval:PT30S}")
+    public void sweep() {
+        int total = 0;
+        for (int i = 0; i < MAX_BATCHES_PER_RUN; i++) {
+            int n = holdService.expireDue(batchSize);
+            total += n;
+            if (n < batchSize) break;
+        }
+        if (total > 0) log.info("Expired holds for {} orders", total);
+    }
+}
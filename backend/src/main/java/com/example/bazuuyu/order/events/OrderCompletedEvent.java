@@ -0,0 +1,4 @@
+package com.example.bazuuyu.order.events;
+
+// order moved to PAID (VNPAY captured, COD collected or set by admin); published once per transition
+public record OrderCompletedEvent(Long orderId) {}
@@ -1,8 +1,13 @@
 package com.example.bazuuyu.repository;
 
 import com.example.bazuuyu.entity.CartItem;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.util.List;
 import java.util.Optional;
 
@@ -10,7 +15,33 @@ public interface CartItemRepository extends JpaRepository<CartItem, Long> {
     List<CartItem> findByCartId(Long cartId);
     Optional<CartItem> findByCartIdAndProductId(Long cartId, Long productId);
     void deleteById(Long id); // allow admin to remove items
+
+    // checkout: dong gio kem product/variant trong 1 SELECT (khong N+1)
+    @EntityGraph(attributePaths = {"product", "variant"})
+    @Query("SELECT ci FROM CartItem ci WHERE ci.cart.id = :cartId ORDER BY ci.id")
+    List<CartItem> findWithProductsByCartId(@Param("cartId") Long cartId);
+
+    // xoa ca gio bang 1 statement, khong load tung dong
+    @Modifying(flushAutomatically = true)
+    @Query("DELETE FROM CartItem ci WHERE ci.cart.id = :cartId")
+    int deleteByCartId(@Param("cartId") Long cartId);
     // Variant product
     Optional<CartItem> findByCartIdAndProductIdAndVariantId(Long cartId, Long productId, Long variantId);
 
+    // badge gio hang: 1 aggregate, don gia = gia variant neu co, khong thi gia san pham
+    interface SummaryRow {
+        Long getLineCount();
+        Long getItemCount();
+        BigDecimal getTotalPrice();
+    }
+
+    @Query("""
+            SELECT count(ci) AS lineCount,
+                   coalesce(sum(ci.quantity), 0) AS itemCount,
+                   coalesce(sum(coalesce(v.price, p.price, 0) * ci.quantity), 0) AS totalPrice
+            FROM CartItem ci JOIN ci.product p LEFT JOIN ci.variant v
+            WHERE ci.cart.id = :cartId
+            """)
+    SummaryRow summarize(@Param("cartId") Long cartId);
+
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package com.example.bazuuyu.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.List;
+
+/**
+ * them dong gio hang bang 1 statement: (cart, product, variant) da co => cong quantity, chua co => them dong.
+ * INSERT ... ON CONFLICT tren uq_cart_item_line (V12, variant null = 0): double-click/nhieu tab khong tao
+ * dong trung va khong mat so luong.
+ * variant khong thuoc product => khong ghi dong nao.
+ */
+@Repository
+public class CartItemUpsert {
+
+    public record Line(Long productId, Long variantId, int quantity) {}
+
+    private static final String UPSERT = """
+            INSERT INTO cart_item (cart_id, product_id, variant_id, quantity)
+            SELECT CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS BIGINT), CAST(? AS INTEGER)
+            WHERE CAST(? AS BIGINT) IS NULL
+               OR EXISTS (SELECT 1 FROM product_variant WHERE id = ? AND product_id = ?)
+            ON CONFLICT (cart_id, product_id, (COALESCE(variant_id, 0)))
+            DO UPDATE SET quantity = cart_item.quantity + EXCLUDED.quantity
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CartItemUpsert(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** 1 round-trip; false = variant khong thuoc product */
+    public boolean add(Long cartId, Line line) {
+        return jdbcTemplate.update(upsertSql(), ps -> bind(ps, cartId, line)) > 0;
+    }
+
+    /** nhieu dong trong 1 JDBC batch (merge gio hang luc dang nhap) */
+    public void addAll(Long cartId, List<Line> lines) {
+        if (lines.isEmpty()) return;
+        jdbcTemplate.batchUpdate(upsertSql(), lines, lines.size(),
+                (ps, line) -> bind(ps, cartId, line));
+    }
+
+    protected String upsertSql() {
+        return UPSERT;
+    }
+
+    private static void bind(PreparedStatement ps, Long cartId, Line line) throws SQLException {
+        ps.setLong(1, cartId);
+        ps.setLong(2, line.productId());
+        setNullableLong(ps, 3, line.variantId());
+        ps.setInt(4, line.quantity());
+        setNullableLong(ps, 5, line.variantId());
+        setNullableLong(ps, 6, line.variantId());
+        ps.setLong(7, line.productId());
+    }
+
+    private static void setNullableLong(PreparedStatement ps, int index, Long value) throws SQLException {
+        if (value == null) ps.setNull(index, Types.BIGINT);
+        else ps.setLong(index, value);
+    }
+}
@@ -3,7 +3,12 @@ package com.example.bazuuyu.repository;
 import com.example.bazuuyu.entity.Cart;
 import com.example.bazuuyu.entity.Customer;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,5 +21,11 @@ public interface CartRepository extends JpaRepository<Cart, Long> {
     List<Cart> findByCustomer(Customer customer);
     Optional<Cart> findByCustomerAndStatus(Customer customer, String status); // e.g., ACTIVE cart
     Optional<Cart> findByGuestIdAndStatus(String guestId, String status);
+    boolean existsByGuestIdAndStatus(String guestId, String status); // cookie GUEST_ID kieu cu
 
+    // ghi hoat dong cuoi khi dong gio doi qua JDBC (CartItemUpsert), khong load cart
+    @Modifying
+    @Transactional
+    @Query("UPDATE Cart c SET c.updatedAt = :at WHERE c.id = :cartId")
+    int touch(@Param("cartId") Long cartId, @Param("at") LocalDateTime at);
 }
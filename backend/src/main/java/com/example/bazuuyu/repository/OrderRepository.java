@@ -2,7 +2,12 @@ package com.example.bazuuyu.repository;
 
 import com.example.bazuuyu.entity.Order;
 import com.example.bazuuyu.entity.Customer;
+import org.springframework.data.domain.Limit;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,6 +20,19 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByCustomer(Customer customer);
     List<Order> findByCustomerIdOrderByOrderDateDesc(Long customerId);
     Optional<Order> findByOrderCode(String orderCode);
+
+    // khoa dong don khi ghi nhan thanh toan: OrderExpirySweeper (SKIP LOCKED) se bo qua don nay
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT o FROM Order o WHERE o.orderCode = :orderCode")
+    Optional<Order> findByOrderCodeForUpdate(@Param("orderCode") String orderCode);
     List<Order> findAllByOrderByOrderDateDesc();
 
+    // duyet don theo lo (keyset tren id) cho cac job backfill
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.id > :afterId ORDER BY o.id")
+    List<Long> findIdsByStatusAfter(@Param("status") Order.OrderStatus status,
+                                    @Param("afterId") Long afterId,
+                                    Limit limit);
+
+    boolean existsByStatus(Order.OrderStatus status);
+
 }
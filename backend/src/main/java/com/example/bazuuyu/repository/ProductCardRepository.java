@@ -0,0 +1,47 @@
+package com.example.bazuuyu.repository;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.ProductCard;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * doc bang product_card cho trang listing.
+ * 2 query rieng (co/khong category) de moi query khop dung 1 index o V7.
+ */
+public interface ProductCardRepository extends JpaRepository<ProductCard, Long> {
+
+    @Query(value = "SELECT c FROM ProductCard c ORDER BY c.createdAt DESC, c.productId DESC",
+            countQuery = "SELECT count(c) FROM ProductCard c")
+    Page<ProductCard> findPage(Pageable pageable);
+
+    @Query(value = """
+        SELECT c FROM ProductCard c WHERE c.category = :category
+        ORDER BY c.createdAt DESC, c.productId DESC
+        """,
+            countQuery = "SELECT count(c) FROM ProductCard c WHERE c.category = :category")
+    Page<ProductCard> findPageByCategory(@Param("category") Category category, Pageable pageable);
+
+    // cac khu landing page (StorefrontLandingService, chay nen)
+    @Query("SELECT c FROM ProductCard c WHERE c.isNewArrival = true ORDER BY c.createdAt DESC, c.productId DESC")
+    List<ProductCard> findNewArrivals(Limit limit);
+
+    // co doanh so tu :since hoac danh dau tay; doanh so xep truoc
+    @Query("""
+        SELECT c FROM ProductCard c
+        LEFT JOIN (
+            SELECT b.productId AS productId, sum(b.units) AS units
+            FROM ProductSalesBucket b WHERE b.saleDate >= :since GROUP BY b.productId
+        ) s ON s.productId = c.productId
+        WHERE s.units > 0 OR c.isBestSeller = true
+        ORDER BY coalesce(s.units, 0) DESC, c.isBestSeller DESC, c.createdAt DESC, c.productId DESC
+        """)
+    List<ProductCard> findBestSellers(@Param("since") LocalDate since, Limit limit);
+}
@@ -0,0 +1,51 @@
+package com.example.bazuuyu.repository;
+
+import com.example.bazuuyu.entity.ProductPairCount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * chi so dong mua (product_pair_count) cho /api/products/{id}/related. ghi: ProductPairCountUpsert.
+ */
+public interface ProductPairCountRepository extends JpaRepository<ProductPairCount, ProductPairCount.Key> {
+
+    // khoa chi 1 instance backfill (giai phong khi transaction ket thuc)
+    @Query(value = "SELECT pg_try_advisory_xact_lock(:key)", nativeQuery = true)
+    boolean tryXactLock(@Param("key") long key);
+
+    interface RelatedRow {
+        Long getProductId();
+        Long getId();
+        String getName();
+        String getCategory();
+        String getMainImageUrl();
+        BigDecimal getDisplayPrice();
+        Boolean getBestSeller();
+        Boolean getNewArrival();
+    }
+
+    // top-K san pham con hang mua cung moi san pham (ca 2 chieu cua cap), kem du lieu the tu product_card
+    @Query(value = """
+        SELECT r.product_id AS productId, r.related_id AS id, r.name AS name, r.category AS category,
+               r.main_image_url AS mainImageUrl, r.display_price AS displayPrice,
+               r.is_best_seller AS bestSeller, r.is_new_arrival AS newArrival
+        FROM (
+            SELECT x.product_id, x.related_id, c.name, c.category, c.main_image_url, c.display_price,
+                   c.is_best_seller, c.is_new_arrival,
+                   row_number() OVER (PARTITION BY x.product_id ORDER BY x.cnt DESC, x.related_id) AS rn
+            FROM (
+                SELECT product_a AS product_id, product_b AS related_id, cnt FROM product_pair_count
+                UNION ALL
+                SELECT product_b, product_a, cnt FROM product_pair_count
+            ) x
+            JOIN product_card c ON c.product_id = x.related_id AND c.in_stock
+        ) r
+        WHERE r.rn <= :k
+        ORDER BY r.product_id, r.rn
+        """, nativeQuery = true)
+    List<RelatedRow> findTopRelated(@Param("k") int k);
+}
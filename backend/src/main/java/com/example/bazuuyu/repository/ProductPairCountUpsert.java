@@ -0,0 +1,46 @@
+package com.example.bazuuyu.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+
+/**
+ * cong dem dong mua (product_pair_count) cho cac don vua hoan tat: moi cap san pham khac nhau trong cung 1 don +1.
+ * INSERT ... ON CONFLICT DO UPDATE (an toan khi 2 don cung cap commit cung luc).
+ * H2 khong co ON CONFLICT DO UPDATE: test dung H2ProductPairCountUpsert (src/test) thay statement.
+ */
+@Repository
+public class ProductPairCountUpsert {
+
+    // cac cap (a < b) cua nhung don nay, dem so don moi cap
+    static final String PAIRS = """
+            SELECT a.product_id AS product_a, b.product_id AS product_b, count(*) AS n
+            FROM (SELECT DISTINCT order_id, product_id FROM order_item WHERE order_id IN (:orderIds)) a
+            JOIN (SELECT DISTINCT order_id, product_id FROM order_item WHERE order_id IN (:orderIds)) b
+              ON b.order_id = a.order_id AND a.product_id < b.product_id
+            GROUP BY a.product_id, b.product_id
+            """;
+
+    private static final String UPSERT = "INSERT INTO product_pair_count (product_a, product_b, cnt) " + PAIRS + """
+            ON CONFLICT (product_a, product_b)
+            DO UPDATE SET cnt = product_pair_count.cnt + EXCLUDED.cnt
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public ProductPairCountUpsert(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    protected String upsertSql() {
+        return UPSERT;
+    }
+
+    /** dung cho ca tang dan (1 don) va backfill (lo don); tra ve so cap da ghi */
+    public int addOrders(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) return 0;
+        return jdbcTemplate.update(upsertSql(), new MapSqlParameterSource("orderIds", orderIds));
+    }
+}
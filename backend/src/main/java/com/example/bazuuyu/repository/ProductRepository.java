@@ -2,6 +2,7 @@ package com.example.bazuuyu.repository;
 
 import com.example.bazuuyu.entity.Product;
 import com.example.bazuuyu.entity.Category;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
@@ -10,7 +11,11 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * thao tac voi bang product
@@ -24,11 +29,31 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
     List<Product> findByIsBestSellerTrue();
     List<Product> findByIsNewArrivalTrue();
 
+    // san pham duoc danh dau len dau, sau do moi nhat truoc (idx_product_new_arrival_created)
+    @Query(value = """
+        SELECT p FROM Product p
+        ORDER BY p.isNewArrival DESC, p.createdAt DESC, p.id DESC
+        """,
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<Product> findAllNewArrivalsFirst(Pageable pageable);
+
+    // ban chay that (tong bucket tu :since), roi co isBestSeller danh tay, roi moi nhat
+    @Query(value = """
+        SELECT p FROM Product p
+        LEFT JOIN (
+            SELECT b.productId AS productId, sum(b.units) AS units
+            FROM ProductSalesBucket b WHERE b.saleDate >= :since GROUP BY b.productId
+        ) s ON s.productId = p.id
+        ORDER BY coalesce(s.units, 0) DESC, p.isBestSeller DESC, p.createdAt DESC, p.id DESC
+        """,
+            countQuery = "SELECT COUNT(p) FROM Product p")
+    Page<Product> findAllRankedBySales(@Param("since") LocalDate since, Pageable pageable);
+
+    // keyword phai qua VietnameseNormalizer (search_text da bo dau, idx_product_search_text_trgm)
     @Query("""
         SELECT p FROM Product p
         WHERE (:keyword IS NULL OR :keyword = '' 
-               OR LOWER(p.name) LIKE LOWER(CONCAT('%', :keyword, '%'))
-               OR LOWER(p.description) LIKE LOWER(CONCAT('%', :keyword, '%')))
+               OR p.searchText LIKE CONCAT('%', :keyword, '%'))
           AND (:category IS NULL OR p.category = :category)
         """)
     Page<Product> search(
@@ -36,4 +61,222 @@ public interface ProductRepository extends JpaRepository<Product, Long>, JpaSpec
             @Param("category") Category category,
             Pageable pageable
     );
+
+    // ----- keyset (cursor) pagination, xem V4__keyset_pagination_indexes.sql -----
+
+    @Query("SELECT p FROM Product p ORDER BY p.createdAt DESC, p.id DESC")
+    List<Product> findLatest(Limit limit);
+
+    @Query("""
+        SELECT p FROM Product p
+        WHERE (p.createdAt, p.id) < (:createdAt, :id)
+        ORDER BY p.createdAt DESC, p.id DESC
+        """)
+    List<Product> findLatestAfter(@Param("createdAt") LocalDateTime createdAt,
+                                  @Param("id") Long id,
+                                  Limit limit);
+
+    @Query("SELECT p FROM Product p ORDER BY p.price ASC, p.id ASC")
+    List<Product> findCheapest(Limit limit);
+
+    @Query("""
+        SELECT p FROM Product p
+        WHERE (p.price, p.id) > (:price, :id)
+        ORDER BY p.price ASC, p.id ASC
+        """)
+    List<Product> findCheapestAfter(@Param("price") BigDecimal price,
+                                    @Param("id") Long id,
+                                    Limit limit);
+
+    @Query("SELECT p FROM Product p ORDER BY p.price DESC, p.id DESC")
+    List<Product> findPriciest(Limit limit);
+
+    @Query("""
+        SELECT p FROM Product p
+        WHERE (p.price, p.id) < (:price, :id)
+        ORDER BY p.price DESC, p.id DESC
+        """)
+    List<Product> findPriciestAfter(@Param("price") BigDecimal price,
+                                    @Param("id") Long id,
+                                    Limit limit);
+
+    // search theo keyset: cung filter voi search(...) nhung khong co COUNT(*)
+    @Query("""
+        SELECT p FROM Product p
+        WHERE (:keyword IS NULL OR :keyword = ''
+               OR p.searchText LIKE CONCAT('%', :keyword, '%'))
+          AND (:category IS NULL OR p.category = :category)
+        ORDER BY p.createdAt DESC, p.id DESC
+        """)
+    List<Product> searchFirst(@Param("keyword") String keyword,
+                              @Param("category") Category category,
+                              Limit limit);
+
+    @Query("""
+        SELECT p FROM Product p
+        WHERE (:keyword IS NULL OR :keyword = ''
+               OR p.searchText LIKE CONCAT('%', :keyword, '%'))
+          AND (:category IS NULL OR p.category = :category)
+          AND (p.createdAt, p.id) < (:createdAt, :id)
+        ORDER BY p.createdAt DESC, p.id DESC
+        """)
+    List<Product> searchAfter(@Param("keyword") String keyword,
+                              @Param("category") Category category,
+                              @Param("createdAt") LocalDateTime createdAt,
+                              @Param("id") Long id,
+                              Limit limit);
+
+    // ----- full-text engine (search.engine=fulltext), xem V5/V6: config vn_unaccent, name weight A, description B -----
+
+    interface SearchHit {
+        Long getId();
+        Double getRank();
+        String getSnippet();
+    }
+
+    // ts_headline chi chay tren cac dong cua trang hien tai (subquery da LIMIT); van ban goc co dau,
+    // vn_unaccent bo dau tung tu khi so voi query nen "ao" van danh dau "Áo"
+    @Query(value = """
+        SELECT r.id AS id, r.rank AS rank,
+               ts_headline('vn_unaccent', coalesce(r.name, '') || ' ' || coalesce(r.description, ''),
+                           to_tsquery('vn_unaccent', :tsquery),
+                           'StartSel=<mark>, StopSel=</mark>, MaxFragments=2, MaxWords=20, MinWords=5') AS snippet
+        FROM (
+            SELECT p.id, p.name, p.description, p.created_at,
+                   ts_rank(p.search_vector, to_tsquery('vn_unaccent', :tsquery)) AS rank
+            FROM product p
+            WHERE (p.search_vector @@ to_tsquery('vn_unaccent', :tsquery)
+                   OR p.search_text LIKE '%' || :keyword || '%')
+              AND (cast(:category AS text) IS NULL OR p.category = cast(:category AS text))
+            ORDER BY rank DESC, p.created_at DESC, p.id DESC
+            LIMIT :limit OFFSET :offset
+        ) r
+        ORDER BY r.rank DESC, r.created_at DESC, r.id DESC
+        """, nativeQuery = true)
+    List<SearchHit> searchFullText(@Param("tsquery") String tsquery,
+                                   @Param("keyword") String keyword,
+                                   @Param("category") String category,
+                                   @Param("limit") int limit,
+                                   @Param("offset") long offset);
+
+    @Query(value = """
+        SELECT count(*) FROM product p
+        WHERE (p.search_vector @@ to_tsquery('vn_unaccent', :tsquery)
+               OR p.search_text LIKE '%' || :keyword || '%')
+          AND (cast(:category AS text) IS NULL OR p.category = cast(:category AS text))
+        """, nativeQuery = true)
+    long countFullText(@Param("tsquery") String tsquery,
+                       @Param("keyword") String keyword,
+                       @Param("category") String category);
+
+    // ----- typeahead (ProductSuggestIndex): chi lay cot can thiet, khong load entity -----
+
+    interface SuggestRow {
+        Long getId();
+        String getName();
+        Boolean getBestSeller();
+        Boolean getNewArrival();
+    }
+
+    @Query("SELECT p.id AS id, p.name AS name, p.isBestSeller AS bestSeller, p.isNewArrival AS newArrival FROM Product p")
+    List<SuggestRow> findAllSuggestRows();
+
+    @Query("""
+        SELECT p.id AS id, p.name AS name, p.isBestSeller AS bestSeller, p.isNewArrival AS newArrival
+        FROM Product p WHERE p.id = :id
+        """)
+    Optional<SuggestRow> findSuggestRowById(@Param("id") Long id);
+
+    // ----- facet counts cho /api/search?facets=true: 1 lan quet, GROUPING SETS -----
+
+    // g = grouping(category, price_bucket, in_stock, best_seller, new_arrival): bit 0 = cot dang duoc group
+    interface FacetRow {
+        Integer getG();
+        String getCategory();
+        Integer getPriceBucket();
+        Boolean getInStock();
+        Boolean getBestSeller();
+        Boolean getNewArrival();
+        Long getCnt();
+    }
+
+    // nguong gia phai khop ProductSearchService.PRICE_BUCKET_BOUNDS
+    @Query(value = """
+        SELECT grouping(f.category, f.price_bucket, f.in_stock, f.best_seller, f.new_arrival) AS g,
+               f.category AS category, f.price_bucket AS priceBucket, f.in_stock AS inStock,
+               f.best_seller AS bestSeller, f.new_arrival AS newArrival, count(*) AS cnt
+        FROM (
+            SELECT p.category AS category,
+                   width_bucket(coalesce(v.min_price, p.price),
+                                ARRAY[100000, 300000, 500000, 1000000]::numeric[]) AS price_bucket,
+                   CASE WHEN v.n > 0 THEN v.max_stock > 0 ELSE p.quantity > 0 END AS in_stock,
+                   p.is_best_seller AS best_seller,
+                   p.is_new_arrival AS new_arrival
+            FROM product p
+            LEFT JOIN LATERAL (
+                SELECT count(*) AS n, min(pv.price) AS min_price, max(pv.stock) AS max_stock
+                FROM product_variant pv WHERE pv.product_id = p.id
+            ) v ON true
+            WHERE (:keyword = ''
+                   OR p.search_text LIKE '%' || :keyword || '%'
+                   OR p.search_vector @@ to_tsquery('vn_unaccent', coalesce(cast(:tsquery AS text), '')))
+              AND (cast(:category AS text) IS NULL OR p.category = cast(:category AS text))
+        ) f
+        GROUP BY GROUPING SETS ((f.category), (f.price_bucket), (f.in_stock), (f.best_seller), (f.new_arrival))
+        """, nativeQuery = true)
+    List<FacetRow> facetCounts(@Param("keyword") String keyword,
+                               @Param("tsquery") String tsquery,
+                               @Param("category") String category);
+
+    // ----- product card cho trang listing: 1 query, khong load variants/images (tranh N+1) -----
+
+    interface CardRow {
+        Long getId();
+        String getName();
+        Category getCategory();
+        String getMainImageUrl();
+        BigDecimal getDisplayPrice();
+        Boolean getInStock();
+        Boolean getBestSeller();
+        Boolean getNewArrival();
+        LocalDateTime getCreatedAt();
+    }
+
+    // gia hien thi/ton kho giong Product.getDisplayPrice(): co variant thi lay min gia, max ton cua variant
+    @Query(value = """
+        SELECT p.id AS id, p.name AS name, p.category AS category,
+               coalesce(p.mainImageUrl,
+                        (SELECT i.imageUrl FROM ProductImage i WHERE i.product = p
+                         ORDER BY i.isPrimary DESC, i.sortOrder, i.id LIMIT 1)) AS mainImageUrl,
+               coalesce(v.minPrice, p.price) AS displayPrice,
+               CASE WHEN coalesce(v.maxStock, p.quantity) > 0 THEN true ELSE false END AS inStock,
+               p.isBestSeller AS bestSeller, p.isNewArrival AS newArrival, p.createdAt AS createdAt
+        FROM Product p
+        LEFT JOIN (
+            SELECT pv.product.id AS productId, min(pv.price) AS minPrice, max(pv.stock) AS maxStock
+            FROM ProductVariant pv GROUP BY pv.product.id
+        ) v ON v.productId = p.id
+        WHERE (:category IS NULL OR p.category = :category)
+        ORDER BY p.createdAt DESC, p.id DESC
+        """,
+        countQuery = "SELECT count(p) FROM Product p WHERE (:category IS NULL OR p.category = :category)")
+    Page<CardRow> findCards(@Param("category") Category category, Pageable pageable);
+
+    // cung cong thuc nhu findCards, cho 1 san pham (ProductCardWriter)
+    @Query("""
+        SELECT p.id AS id, p.name AS name, p.category AS category,
+               coalesce(p.mainImageUrl,
+                        (SELECT i.imageUrl FROM ProductImage i WHERE i.product = p
+                         ORDER BY i.isPrimary DESC, i.sortOrder, i.id LIMIT 1)) AS mainImageUrl,
+               coalesce(v.minPrice, p.price) AS displayPrice,
+               CASE WHEN coalesce(v.maxStock, p.quantity) > 0 THEN true ELSE false END AS inStock,
+               p.isBestSeller AS bestSeller, p.isNewArrival AS newArrival, p.createdAt AS createdAt
+        FROM Product p
+        LEFT JOIN (
+            SELECT pv.product.id AS productId, min(pv.price) AS minPrice, max(pv.stock) AS maxStock
+            FROM ProductVariant pv WHERE pv.product.id = :id GROUP BY pv.product.id
+        ) v ON v.productId = p.id
+        WHERE p.id = :id
+        """)
+    Optional<CardRow> findCardRowById(@Param("id") Long id);
 }
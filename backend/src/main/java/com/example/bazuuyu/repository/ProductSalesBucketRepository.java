@@ -0,0 +1,35 @@
+package com.example.bazuuyu.repository;
+
+import com.example.bazuuyu.entity.ProductSalesBucket;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+
+/**
+ * bo dem ban hang theo ngay (product_sales_bucket).
+ */
+public interface ProductSalesBucketRepository extends JpaRepository<ProductSalesBucket, ProductSalesBucket.Key> {
+
+    // cong don cac dong cua 1 don vao bucket cua ngay; chi doc order_item cua don do
+    @Modifying
+    @Transactional
+    @Query(value = """
+        INSERT INTO product_sales_bucket (product_id, variant_id, sale_date, units)
+        SELECT oi.product_id, coalesce(oi.variant_id, 0), :day, sum(oi.quantity)
+        FROM order_item oi
+        WHERE oi.order_id = :orderId AND oi.quantity > 0
+        GROUP BY oi.product_id, coalesce(oi.variant_id, 0)
+        ON CONFLICT (product_id, variant_id, sale_date)
+        DO UPDATE SET units = product_sales_bucket.units + EXCLUDED.units
+        """, nativeQuery = true)
+    int addOrder(@Param("orderId") Long orderId, @Param("day") LocalDate day);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM ProductSalesBucket b WHERE b.saleDate < :before")
+    int deleteOlderThan(@Param("before") LocalDate before);
+}
@@ -3,9 +3,15 @@ package com.example.bazuuyu.repository;
 import com.example.bazuuyu.entity.Customer;
 import com.example.bazuuyu.entity.Wishlist;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface WishlistRepository extends JpaRepository<Wishlist, Long> {
     Optional<Wishlist> findByCustomerId(Long customerId);
+
+    @Query("SELECT i.product.id FROM WishlistItem i WHERE i.wishlist.id = :wishlistId")
+    List<Long> findProductIds(@Param("wishlistId") Long wishlistId);
 }
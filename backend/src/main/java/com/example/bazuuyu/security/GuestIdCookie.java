@@ -0,0 +1,129 @@
+package com.example.bazuuyu.security;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * cookie GUEST_ID co ky HMAC: "<uuid>.<HMAC-SHA256(uuid)>". chi cap khi guest ghi vao gio hang (lan dau, sau do gia han),
+ * doc thi chi kiem chu ky (khong query DB) => id gia/ngau nhien bi bo qua nhu khach chua co gio.
+ * khoa guest.id.secret (GUEST_ID_SECRET) bat buoc va rieng: cac instance phai dung chung, khong dung lai JWT_SECRET.
+ */
+@Component
+public class GuestIdCookie {
+
+    public static final String COOKIE_NAME = "GUEST_ID";
+    public static final int MAX_AGE_SECONDS = 60 * 60 * 24 * 30; // 30 days
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final String ATTR = GuestIdCookie.class.getName() + ".guestId";
+    private static final String ISSUED_ATTR = GuestIdCookie.class.getName() + ".issued";
+    private static final Base64.Encoder B64 = Base64.getUrlEncoder().withoutPadding();
+
+    private final SecretKeySpec key;
+
+    public GuestIdCookie(@Value("${guest.id.secret}") String secret) {
+        // khoa ngau nhien moi lan khoi dong se lam mat gio guest sau moi lan deploy => khong khoi dong
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalStateException("guest.id.secret (GUEST_ID_SECRET) must be set");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+    }
+
+    /** guest id da kiem chu ky tu cookie, empty neu khong co hoac khong hop le */
+    public Optional<String> read(HttpServletRequest req) {
+        Object cached = req.getAttribute(ATTR);
+        if (cached != null) return Optional.of((String) cached);
+        String token = rawCookie(req);
+        String id = token == null ? null : verify(token);
+        if (id != null) req.setAttribute(ATTR, id);
+        return Optional.ofNullable(id);
+    }
+
+    /** co cookie nhung chu ky sai (gia mao, hoac cookie UUID kieu cu) */
+    public boolean hasInvalidCookie(HttpServletRequest req) {
+        return rawCookie(req) != null && read(req).isEmpty();
+    }
+
+    /** cookie kieu cu: UUID tran chua ky. chi la ung vien, GuestIdFilter kiem gio hang truoc khi nhan */
+    public Optional<String> legacyId(HttpServletRequest req) {
+        String token = rawCookie(req);
+        if (token == null || token.indexOf('.') >= 0) return Optional.empty();
+        try {
+            return Optional.of(UUID.fromString(token).toString());
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * guest ghi vao gio: cap id moi neu chua co id hop le, co roi thi gia han cookie them MAX_AGE_SECONDS
+     * (khop CartPurgeJob: gio guest song 30 ngay tu lan ghi cuoi). 1 Set-Cookie moi request.
+     */
+    public String getOrIssue(HttpServletRequest req, HttpServletResponse res) {
+        Object issued = req.getAttribute(ISSUED_ATTR);
+        if (issued != null) return (String) issued;
+        return issue(req, res, read(req).orElseGet(() -> UUID.randomUUID().toString()));
+    }
+
+    /** ky (lai) id cho guest: Set-Cookie va request hien tai doc duoc ngay */
+    public String issue(HttpServletRequest req, HttpServletResponse res, String id) {
+        res.addCookie(cookie(id + "." + sign(id), MAX_AGE_SECONDS));
+        req.setAttribute(ATTR, id);
+        req.setAttribute(ISSUED_ATTR, id);
+        return id;
+    }
+
+    public void clear(HttpServletResponse res) {
+        res.addCookie(cookie("", 0));
+    }
+
+    private String verify(String token) {
+        int dot = token.lastIndexOf('.');
+        if (dot <= 0) return null;
+        String id = token.substring(0, dot);
+        byte[] expected = sign(id).getBytes(StandardCharsets.US_ASCII);
+        byte[] actual = token.substring(dot + 1).getBytes(StandardCharsets.US_ASCII);
+        return MessageDigest.isEqual(expected, actual) ? id : null; // so sanh thoi gian hang
+    }
+
+    private String sign(String id) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return B64.encodeToString(mac.doFinal(id.getBytes(StandardCharsets.UTF_8)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String rawCookie(HttpServletRequest req) {
+        if (req.getCookies() == null) return null;
+        for (Cookie c : req.getCookies()) {
+            if (COOKIE_NAME.equals(c.getName()) && c.getValue() != null && !c.getValue().isBlank()) {
+                return c.getValue();
+            }
+        }
+        return null;
+    }
+
+    private static Cookie cookie(String value, int maxAge) {
+        Cookie cookie = new Cookie(COOKIE_NAME, value);
+        cookie.setPath("/");
+        cookie.setMaxAge(maxAge);
+        cookie.setHttpOnly(true);
+        cookie.setSecure(true); // you’re on https via Netlify
+        return cookie;
+    }
+}
@@ -1,43 +1,43 @@
 // src/main/java/com/example/bazuuyu/security/GuestIdFilter.java
 package com.example.bazuuyu.security;
 
+import com.example.bazuuyu.repository.CartRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.UUID;
+import java.util.Optional;
 
+/**
+ * khong con cap GUEST_ID cho moi request (crawler cung nhan cookie + tao gio hang).
+ * cookie duoc cap khi guest them vao gio lan dau (GuestIdCookie.getOrIssue); o day chi xu ly cookie sai chu ky:
+ * UUID kieu cu dang co gio ACTIVE thi ky lai (giu gio cua khach), con lai (gia mao, gio da mat) thi xoa.
+ */
 @Component
+@RequiredArgsConstructor
 public class GuestIdFilter extends OncePerRequestFilter {
 
-    public static final String COOKIE_NAME = "GUEST_ID";
-    public static final int MAX_AGE_SECONDS = 60 * 60 * 24 * 30; // 30 days
+    private final GuestIdCookie guestIdCookie;
+    private final CartRepository cartRepository;
 
     @Override
     protected void doFilterInternal(HttpServletRequest req, HttpServletResponse res, FilterChain chain)
             throws ServletException, IOException {
 
-        boolean hasCookie = false;
-        if (req.getCookies() != null) {
-            hasCookie = Arrays.stream(req.getCookies())
-                    .anyMatch(c -> COOKIE_NAME.equals(c.getName()) && c.getValue() != null && !c.getValue().isBlank());
-        }
-
-        if (!hasCookie) {
-            String gid = UUID.randomUUID().toString();
-            Cookie cookie = new Cookie(COOKIE_NAME, gid);
-            cookie.setPath("/");
-            cookie.setMaxAge(MAX_AGE_SECONDS);
-            cookie.setHttpOnly(true);
-            cookie.setSecure(true); // you’re on https via Netlify
-            // Lax is fine for same-site; if you embed cross-site, set SameSite=None via response header on your CDN
-            res.addCookie(cookie);
+        if (guestIdCookie.hasInvalidCookie(req)) {
+            // chi query khi co cookie kieu cu, sau lan ky lai nay khong con
+            Optional<String> legacy = guestIdCookie.legacyId(req)
+                    .filter(id -> cartRepository.existsByGuestIdAndStatus(id, "ACTIVE"));
+            if (legacy.isPresent()) {
+                guestIdCookie.issue(req, res, legacy.get());
+            } else {
+                guestIdCookie.clear(res);
+            }
         }
 
         chain.doFilter(req, res);
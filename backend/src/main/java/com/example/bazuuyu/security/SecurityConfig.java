@@ -62,9 +62,11 @@ public class SecurityConfig {
 
                         .requestMatchers(HttpMethod.POST, "/api/orders/checkout").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/cart/guest/load").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/cart/summary").permitAll()
                         .requestMatchers("/api/payments/**").permitAll()
                         .requestMatchers("/api/vn/**").permitAll()
                         .requestMatchers(HttpMethod.GET, "/api/search/**").permitAll()
+                        .requestMatchers(HttpMethod.GET, "/api/storefront/**").permitAll()
 
 
                         .requestMatchers(HttpMethod.POST, "/api/products", "/api/admins/products")
@@ -147,6 +149,9 @@ public class SecurityConfig {
                 "Authorization",
                 "Content-Type",
                 "X-Total-Count",
+                "Idempotent-Replayed",
+                "ETag",
+                "Last-Modified",
                 "Access-Control-Allow-Origin",
                 "Access-Control-Allow-Credentials"
         ));
@@ -7,6 +7,7 @@ import com.example.bazuuyu.entity.Role;
 import com.example.bazuuyu.repository.CartItemRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 import java.util.Optional;
@@ -54,9 +55,10 @@ public class CartItemService {
             throw new SecurityException("Only admins can perform this action.");
         }
     }
+    // 1 DELETE ... WHERE cart_id = ?, khong load roi xoa tung dong
+    @Transactional
     public void clearItemsByCart(Cart cart) {
-        List<CartItem> items = cartItemRepository.findByCartId(cart.getId());
-        cartItemRepository.deleteAll(items);
+        cartItemRepository.deleteByCartId(cart.getId());
     }
 
 }
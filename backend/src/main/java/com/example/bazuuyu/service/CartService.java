@@ -3,18 +3,24 @@ package com.example.bazuuyu.service;
 import com.example.bazuuyu.dto.request.CartMergeItem;
 import com.example.bazuuyu.dto.request.CreateCartItemRequest;
 import com.example.bazuuyu.dto.response.CartResponse;
+import com.example.bazuuyu.dto.response.CartSummaryResponse;
 import com.example.bazuuyu.entity.*;
 import com.example.bazuuyu.mapper.CartMapper;
 import com.example.bazuuyu.repository.*;
+import com.example.bazuuyu.security.GuestIdCookie;
 import com.example.bazuuyu.security.JwtUtils;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
-import java.util.List;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
@@ -25,66 +31,43 @@ public class CartService {
     private final ProductRepository productRepository;
     private final ProductVariantRepository productVariantRepository; // 🔹 NEW
     private final CustomerRepository customerRepository;
+    private final CartItemUpsert cartItemUpsert;
+    private final GuestIdCookie guestIdCookie;
+    private final NamedParameterJdbcTemplate namedJdbc;
 
     // ----------------- CRUD CART ITEM -----------------
 
+    // 1 statement upsert (CartItemUpsert): khong doc truoc, double-click/nhieu tab khong tao dong trung
+    @Transactional
     public void addCartItem(CreateCartItemRequest request) {
-        Cart cart = cartRepository.findById(request.getCartId())
-                .orElseThrow(() -> new RuntimeException("Cart not found"));
-
-        Product product = productRepository.findById(request.getProductId())
-                .orElseThrow(() -> new RuntimeException("Product not found"));
-
-        Long variantId = request.getVariantId();
         Integer qty = request.getQuantity() == null || request.getQuantity() < 1
                 ? 1
                 : request.getQuantity();
 
-        ProductVariant variant = null;
-        if (variantId != null) {
-            variant = productVariantRepository.findById(variantId)
-                    .orElseThrow(() -> new RuntimeException("Variant not found"));
-            // safety: variant must belong to product
-            if (!variant.getProduct().getId().equals(product.getId())) {
-                throw new RuntimeException("Variant does not belong to product");
-            }
+        boolean written;
+        try {
+            written = cartItemUpsert.add(request.getCartId(),
+                    new CartItemUpsert.Line(request.getProductId(), request.getVariantId(), qty));
+        } catch (DataIntegrityViolationException e) {
+            // khoa ngoai: cart/product/variant khong ton tai
+            throw new RuntimeException("Cart, product or variant not found");
         }
-
-        // 🔹 if variant == null → simple product
-        Optional<CartItem> existing;
-        if (variant == null) {
-            existing = cartItemRepository
-                    .findByCartIdAndProductId(cart.getId(), product.getId());
-        } else {
-            existing = cartItemRepository
-                    .findByCartIdAndProductIdAndVariantId(cart.getId(), product.getId(), variant.getId());
-        }
-
-        CartItem item;
-        if (existing.isPresent()) {
-            item = existing.get();
-            item.setQuantity(item.getQuantity() + qty);
-        } else {
-            item = CartItem.builder()
-                    .cart(cart)
-                    .product(product)
-                    .variant(variant) // null for simple product
-                    .quantity(qty)
-                    .build();
-        }
-
-        cartItemRepository.save(item);
+        // safety: variant must belong to product
+        if (!written) throw new RuntimeException("Variant does not belong to product");
+        cartRepository.touch(request.getCartId(), LocalDateTime.now());
     }
 
     public List<CartItem> getCartItems(Long cartId) {
         return cartItemRepository.findByCartId(cartId);
     }
 
+    @Transactional
     public void updateCartItemQuantity(Long itemId, int quantity) {
         CartItem item = cartItemRepository.findById(itemId)
                 .orElseThrow(() -> new RuntimeException("Cart item not found"));
         item.setQuantity(quantity);
         cartItemRepository.save(item);
+        cartRepository.touch(item.getCart().getId(), LocalDateTime.now());
     }
 
     public void removeCartItem(Long itemId) {
@@ -146,88 +129,130 @@ public class CartService {
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> new RuntimeException("Cart not found"));
         cart.setStatus(status);
+        if ("CHECKED_OUT".equals(status)) cart.setCheckedOutAt(LocalDateTime.now());
         cartRepository.save(cart);
     }
+    // badge header: guest chua co gio => EMPTY, khong ghi gi; co gio => 1 aggregate tren cart_item
+    public CartSummaryResponse getSummary(HttpServletRequest request, JwtUtils jwtUtils,
+                                          CustomerService customerService) {
+        return findActiveCartForRequest(request, jwtUtils, customerService)
+                .map(cart -> {
+                    CartItemRepository.SummaryRow row = cartItemRepository.summarize(cart.getId());
+                    return new CartSummaryResponse(row.getLineCount().intValue(), row.getItemCount().intValue(),
+                            row.getTotalPrice());
+                })
+                .orElse(CartSummaryResponse.EMPTY);
+    }
+
+    // ----------------- RETENTION -----------------
+
+    public record PurgeResult(int carts, int items) {}
+
+    /**
+     * 1 lo cua CartPurgeJob: khoa toi da batchSize gio het han (SKIP LOCKED: instance khac dang xoa thi bo qua),
+     * xoa cart_item roi cart trong cung transaction. gio guest: tinh tu hoat dong cuoi (updated_at), cookie GUEST_ID
+     * cung gia han moi lan ghi nen het han cung luc; gio CHECKED_OUT: tinh tu luc checkout, don hang da luu rieng
+     * dong hang. gio ACTIVE cua customer khong bao gio bi xoa.
+     */
+    @Transactional
+    public PurgeResult purgeStale(LocalDateTime guestIdleBefore, LocalDateTime checkedOutBefore, int batchSize) {
+        List<Long> ids = namedJdbc.queryForList("""
+                SELECT id FROM cart
+                WHERE (customer_id IS NULL AND updated_at < :guestBefore)
+                   OR (status = 'CHECKED_OUT' AND checked_out_at < :checkedOutBefore)
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+                """, new MapSqlParameterSource()
+                .addValue("guestBefore", guestIdleBefore)
+                .addValue("checkedOutBefore", checkedOutBefore)
+                .addValue("limit", batchSize), Long.class);
+        if (ids.isEmpty()) return new PurgeResult(0, 0);
+
+        MapSqlParameterSource byIds = new MapSqlParameterSource("ids", ids);
+        int items = namedJdbc.update("DELETE FROM cart_item WHERE cart_id IN (:ids)", byIds);
+        int carts = namedJdbc.update("DELETE FROM cart WHERE id IN (:ids)", byIds);
+        return new PurgeResult(carts, items);
+    }
+
     // CartService.java
-    public Cart getOrCreateActiveCartForRequest(HttpServletRequest request, JwtUtils jwtUtils, CustomerService customerService) {
-        String authHeader = request.getHeader("Authorization");
-        String token = null;
-        if (authHeader != null && authHeader.startsWith("Bearer ")) {
-            token = authHeader.substring(7);
+    // ghi vao gio (them hang, nap gio guest): guest chua co id hop le => cap cookie moi, gio tao luc nay
+    public Cart getOrCreateActiveCartForRequest(HttpServletRequest request, HttpServletResponse response,
+                                                JwtUtils jwtUtils, CustomerService customerService) {
+        Optional<Customer> customer = customerFromRequest(request, jwtUtils, customerService);
+        if (customer.isPresent()) {
+            return getOrCreateActiveCartForCustomer(customer.get());
         }
+        return getOrCreateActiveCartForGuest(guestIdCookie.getOrIssue(request, response));
+    }
 
-        if (token != null) {
-            String username = jwtUtils.getUsernameFromToken(token);
-            Customer customer = customerService.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Customer not found"));
-
-            return getOrCreateActiveCartForCustomer(customer);
-        } else {
-            String guestId = null;
-            if (request.getCookies() != null) {
-                for (jakarta.servlet.http.Cookie c : request.getCookies()) {
-                    if ("GUEST_ID".equals(c.getName())) {
-                        guestId = c.getValue();
-                    }
-                }
-            }
-            if (guestId == null || guestId.isBlank()) {
-                throw new RuntimeException("Missing guest identifier (GUEST_ID cookie)");
-            }
-            return getOrCreateActiveCartForGuest(guestId);
+    // chi doc (xem gio, checkout): guest khong co cookie hop le => empty, khong query va khong tao dong cart
+    public Optional<Cart> findActiveCartForRequest(HttpServletRequest request, JwtUtils jwtUtils,
+                                                   CustomerService customerService) {
+        Optional<Customer> customer = customerFromRequest(request, jwtUtils, customerService);
+        if (customer.isPresent()) {
+            return getActiveCart(customer.get());
         }
+        return guestIdCookie.read(request)
+                .flatMap(guestId -> cartRepository.findByGuestIdAndStatus(guestId, "ACTIVE"));
+    }
+
+    private Optional<Customer> customerFromRequest(HttpServletRequest request, JwtUtils jwtUtils,
+                                                   CustomerService customerService) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) return Optional.empty();
+
+        String username = jwtUtils.getUsernameFromToken(authHeader.substring(7));
+        return Optional.of(customerService.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Customer not found")));
     }
 
 
+    // khoa 1 dong gio hang: variantId null = san pham don
+    private record LineKey(Long productId, Long variantId) {}
+
+    /**
+     * gop gio hang guest vao gio ACTIVE luc dang nhap: 1 query cho products, 1 cho variants,
+     * roi 1 JDBC batch upsert (cong them vao dong da co, them dong moi) thay vi 3-4 query cho moi dong.
+     */
     @Transactional
     public void merge(Long customerId, List<CartMergeItem> items) {
         if (items == null || items.isEmpty()) return;
 
-        Cart cart = getOrCreateActiveCartEntity(customerId);
-
+        // gop cac dong trung trong payload truoc
+        Map<LineKey, Integer> qtyByKey = new LinkedHashMap<>();
         for (CartMergeItem it : items) {
             if (it.getProductId() == null) continue;
-
             int qty = (it.getQuantity() == null || it.getQuantity() < 1)
                     ? 1 : it.getQuantity();
-
-            Product product = productRepository.findById(it.getProductId())
-                    .orElseThrow(() ->
-                            new RuntimeException("Product not found: " + it.getProductId()));
-
-            Long variantId = it.getVariantId();
-            ProductVariant variant = null;
-            if (variantId != null) {
-                variant = productVariantRepository.findById(variantId)
-                        .orElseThrow(() -> new RuntimeException("Variant not found: " + variantId));
-                if (!variant.getProduct().getId().equals(product.getId())) {
+            qtyByKey.merge(new LineKey(it.getProductId(), it.getVariantId()), qty, Integer::sum);
+        }
+        if (qtyByKey.isEmpty()) return;
+
+        Set<Long> productIds = qtyByKey.keySet().stream().map(LineKey::productId).collect(Collectors.toSet());
+        Set<Long> variantIds = qtyByKey.keySet().stream().map(LineKey::variantId)
+                .filter(Objects::nonNull).collect(Collectors.toSet());
+
+        Set<Long> foundProducts = productRepository.findAllById(productIds).stream()
+                .map(Product::getId).collect(Collectors.toSet());
+        Map<Long, ProductVariant> variants = productVariantRepository.findAllById(variantIds).stream()
+                .collect(Collectors.toMap(ProductVariant::getId, v -> v));
+        for (LineKey key : qtyByKey.keySet()) {
+            if (!foundProducts.contains(key.productId())) {
+                throw new RuntimeException("Product not found: " + key.productId());
+            }
+            if (key.variantId() != null) {
+                ProductVariant variant = variants.get(key.variantId());
+                if (variant == null) throw new RuntimeException("Variant not found: " + key.variantId());
+                if (!variant.getProduct().getId().equals(key.productId())) {
                     throw new RuntimeException("Variant does not belong to product");
                 }
             }
-
-            Optional<CartItem> existing;
-            if (variant == null) {
-                existing = cartItemRepository
-                        .findByCartIdAndProductId(cart.getId(), product.getId());
-            } else {
-                existing = cartItemRepository
-                        .findByCartIdAndProductIdAndVariantId(cart.getId(), product.getId(), variant.getId());
-            }
-
-            if (existing.isPresent()) {
-                CartItem ci = existing.get();
-                ci.setQuantity(ci.getQuantity() + qty);
-                cartItemRepository.save(ci);
-            } else {
-                cartItemRepository.save(
-                        CartItem.builder()
-                                .cart(cart)
-                                .product(product)
-                                .variant(variant)
-                                .quantity(qty)
-                                .build()
-                );
-            }
         }
+
+        Cart cart = getOrCreateActiveCartEntity(customerId);
+        List<CartItemUpsert.Line> lines = new ArrayList<>();
+        qtyByKey.forEach((key, qty) -> lines.add(new CartItemUpsert.Line(key.productId(), key.variantId(), qty)));
+        cartItemUpsert.addAll(cart.getId(), lines);
+        cartRepository.touch(cart.getId(), LocalDateTime.now());
     }
 }
@@ -0,0 +1,115 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.exception.IdempotencyKeyReusedException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.function.Supplier;
+
+/**
+ * header Idempotency-Key cho checkout/COD: client retry (mang chap chon) nhan lai ket qua lan dau thay vi tao don moi.
+ * dong idempotency_key duoc INSERT trong cung transaction voi thao tac => request trung dang chay song song
+ * bi chan tren primary key den khi lan dau commit (roi replay) hoac rollback (roi tu chay). chi luu ket qua thanh
+ * cong; loi (het hang, gio rong...) rollback ca dong key nen retry sau do chay lai binh thuong.
+ */
+@Service
+public class IdempotencyService {
+
+    /** replayed = true: body lay tu lan dau, thao tac khong chay lai */
+    public record Result<T>(T body, boolean replayed) {}
+
+    public static final String KEY_HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate tx;
+    private final ObjectMapper objectMapper;
+    private final Duration ttl;
+
+    public IdempotencyService(JdbcTemplate jdbcTemplate,
+                              PlatformTransactionManager transactionManager,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl:PT24H}") Duration ttl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tx = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.ttl = ttl;
+    }
+
+    /**
+     * chay action 1 lan cho moi (scope, key). key rong => chay thang, khong ghi gi.
+     * request: nhung gi xac dinh request (nguoi goi, body), key dung lai voi request khac => IdempotencyKeyReusedException.
+     */
+    public <T> Result<T> execute(String scope, String key, Object request, Class<T> responseType, Supplier<T> action) {
+        if (key == null || key.isBlank()) return new Result<>(action.get(), false);
+
+        byte[] keyHash = sha256(scope + ":" + key.trim());
+        byte[] requestHash = sha256(toJson(request));
+        return tx.execute(status -> {
+            // trung key dang chay o transaction khac: cau lenh nay cho den khi transaction do ket thuc
+            int claimed = jdbcTemplate.update("""
+                    INSERT INTO idempotency_key (key_hash, request_hash, expires_at) VALUES (?, ?, ?)
+                    ON CONFLICT DO NOTHING
+                    """, keyHash, requestHash, Timestamp.valueOf(LocalDateTime.now().plus(ttl)));
+            if (claimed == 0) return replay(keyHash, requestHash, responseType);
+
+            T body = action.get();
+            jdbcTemplate.update("UPDATE idempotency_key SET response = ? WHERE key_hash = ?", toJson(body), keyHash);
+            return new Result<>(body, false);
+        });
+    }
+
+    private <T> Result<T> replay(byte[] keyHash, byte[] requestHash, Class<T> responseType) {
+        Stored stored = jdbcTemplate.queryForObject(
+                "SELECT request_hash, response FROM idempotency_key WHERE key_hash = ?",
+                (rs, i) -> new Stored(rs.getBytes(1), rs.getString(2)), keyHash);
+        if (!MessageDigest.isEqual(stored.requestHash(), requestHash)) throw new IdempotencyKeyReusedException();
+        try {
+            return new Result<>(objectMapper.readValue(stored.response(), responseType), true);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Stored idempotent response is unreadable", e);
+        }
+    }
+
+    private record Stored(byte[] requestHash, String response) {}
+
+    // key qua TTL: xoa theo lich (1 lan/gio), cho den luc do van replay
+    @Scheduled(cron = "${idempotency.purge.cron:0 15 * * * *}")
+    public void purgeExpired() {
+        int deleted = jdbcTemplate.update("DELETE FROM idempotency_key WHERE expires_at < ?",
+                Timestamp.valueOf(LocalDateTime.now()));
+        if (deleted > 0) log.info("Purged {} expired idempotency keys", deleted);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    private static byte[] sha256(String s) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(s.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
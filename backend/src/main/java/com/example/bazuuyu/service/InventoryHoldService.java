@@ -0,0 +1,137 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * giu hang (inventory_hold) cho don chua thanh toan: ton kho da tru luc checkout (InventoryService),
+ * hold ghi lai de tra lai khi het han. thanh toan xong/COD => xoa hold (tru that); het han/huy => cong lai.
+ * dong bo giua instance bang khoa dong orders: sweeper dung SKIP LOCKED, thanh toan dung FOR UPDATE.
+ */
+@Service
+public class InventoryHoldService {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final ApplicationEventPublisher events;
+    private final Duration checkoutTtl;
+    private final Duration paymentTtl;
+
+    public InventoryHoldService(JdbcTemplate jdbcTemplate,
+                                ApplicationEventPublisher events,
+                                @Value("${inventory.hold.checkout-ttl:PT30M}") Duration checkoutTtl,
+                                @Value("${inventory.hold.payment-ttl:PT17M}") Duration paymentTtl) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.events = events;
+        this.checkoutTtl = checkoutTtl;
+        this.paymentTtl = paymentTtl;
+    }
+
+    // goi ngay sau InventoryService.reserve trong cung transaction checkout
+    @Transactional
+    public void hold(Long orderId, Collection<InventoryService.StockLine> lines) {
+        Timestamp expiresAt = Timestamp.valueOf(LocalDateTime.now().plus(checkoutTtl));
+        List<InventoryService.StockLine> rows = List.copyOf(lines);
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO inventory_hold (order_id, product_id, variant_id, quantity, expires_at)
+                VALUES (?, ?, ?, ?, ?)
+                """, rows, rows.size(), (ps, l) -> {
+            ps.setLong(1, orderId);
+            ps.setLong(2, l.productId());
+            ps.setObject(3, l.variantId());
+            ps.setInt(4, l.quantity());
+            ps.setTimestamp(5, expiresAt);
+        });
+    }
+
+    // link VNPay het han sau 15 phut: giu hang den luc do (+ du phong); chi keo dai, khong rut ngan hold dang con
+    @Transactional
+    public void extendForPayment(Long orderId) {
+        jdbcTemplate.update("UPDATE inventory_hold SET expires_at = GREATEST(expires_at, ?) WHERE order_id = ?",
+                Timestamp.valueOf(LocalDateTime.now().plus(paymentTtl)), orderId);
+    }
+
+    // da thanh toan / COD: ton kho da tru tu truoc, chi bo hold
+    @Transactional
+    public void convert(Long orderId) {
+        jdbcTemplate.update("DELETE FROM inventory_hold WHERE order_id = ?", orderId);
+    }
+
+    // huy don: cong lai hang dang giu
+    @Transactional
+    public void release(Long orderId) {
+        releaseOrders(List.of(orderId));
+    }
+
+    /**
+     * 1 lo cua sweeper: khoa toi da batchSize don (khong phai dong hold) co hold den han
+     * (SKIP LOCKED: instance khac/don dang thanh toan thi bo qua),
+     * don CREATED/AWAITING_PAYMENT -> EXPIRED va tra hang; don trang thai khac chi xoa hold.
+     * @return so don da xu ly
+     */
+    @Transactional
+    public int expireDue(int batchSize) {
+        List<Long> claimed = jdbcTemplate.queryForList("""
+                SELECT o.id FROM orders o
+                WHERE o.id IN (
+                    SELECT h.order_id FROM inventory_hold h
+                    WHERE h.expires_at <= now()
+                    GROUP BY h.order_id
+                    ORDER BY min(h.expires_at)
+                    LIMIT ?)
+                FOR UPDATE OF o SKIP LOCKED
+                """, Long.class, batchSize);
+        if (claimed.isEmpty()) return 0;
+
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", claimed);
+        List<Long> expiring = namedJdbc.queryForList("""
+                SELECT id FROM orders
+                WHERE id IN (:ids) AND status IN ('CREATED', 'AWAITING_PAYMENT')
+                """, ids, Long.class);
+        if (!expiring.isEmpty()) {
+            releaseOrders(expiring);
+            namedJdbc.update("UPDATE orders SET status = 'EXPIRED' WHERE id IN (:ids)",
+                    new MapSqlParameterSource("ids", expiring));
+        }
+        namedJdbc.update("DELETE FROM inventory_hold WHERE order_id IN (:ids)", ids);
+        return claimed.size();
+    }
+
+    // cong lai theo tung variant/san pham (set-based), roi xoa hold
+    private void releaseOrders(List<Long> orderIds) {
+        MapSqlParameterSource ids = new MapSqlParameterSource("ids", orderIds);
+        List<Long> productIds = namedJdbc.queryForList(
+                "SELECT DISTINCT product_id FROM inventory_hold WHERE order_id IN (:ids)", ids, Long.class);
+        if (productIds.isEmpty()) return;
+
+        namedJdbc.update("""
+                UPDATE product_variant v SET stock = v.stock + h.qty
+                FROM (SELECT variant_id, sum(quantity) AS qty FROM inventory_hold
+                      WHERE order_id IN (:ids) AND variant_id IS NOT NULL GROUP BY variant_id) h
+                WHERE v.id = h.variant_id
+                """, ids);
+        namedJdbc.update("""
+                UPDATE product p SET quantity = p.quantity + h.qty
+                FROM (SELECT product_id, sum(quantity) AS qty FROM inventory_hold
+                      WHERE order_id IN (:ids) AND variant_id IS NULL GROUP BY product_id) h
+                WHERE p.id = h.product_id
+                """, ids);
+        namedJdbc.update("DELETE FROM inventory_hold WHERE order_id IN (:ids)", ids);
+
+        // co the vua co hang tro lai: cap nhat product_card/cache
+        productIds.forEach(id -> events.publishEvent(new ProductChangedEvent(id)));
+    }
+}
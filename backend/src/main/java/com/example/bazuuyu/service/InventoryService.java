@@ -0,0 +1,115 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.exception.InsufficientStockException;
+import com.example.bazuuyu.inventory.FlashSaleStock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+/**
+ * tru ton kho luc checkout bang UPDATE co dieu kien (khong SELECT ... FOR UPDATE):
+ * UPDATE ... SET stock = stock - ? WHERE id = ? AND stock >= ? => 0 dong = khong du hang.
+ * chay trong transaction cua checkout: thieu 1 dong thi nem loi va ca don rollback.
+ * SKU dang flash sale (FlashSaleStock) tru tren bo dem trong bo nho, khong cham dong product_variant.
+ */
+@Service
+public class InventoryService {
+
+    /** variantId != null => tru product_variant.stock, nguoc lai tru product.quantity */
+    public record StockLine(Long productId, Long variantId, int quantity) {}
+
+    private static final String TAKE_VARIANT =
+            "UPDATE product_variant SET stock = stock - ? WHERE id = ? AND stock >= ?";
+    private static final String TAKE_PRODUCT =
+            "UPDATE product SET quantity = quantity - ? WHERE id = ? AND quantity >= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbc;
+    private final ApplicationEventPublisher events;
+    private final FlashSaleStock flashSale;
+
+    public InventoryService(JdbcTemplate jdbcTemplate, ApplicationEventPublisher events, FlashSaleStock flashSale) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbc = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.events = events;
+        this.flashSale = flashSale;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void reserve(Collection<StockLine> lines) {
+        List<String> shortLines = take(lines);
+        if (!shortLines.isEmpty()) throw new InsufficientStockException(shortLines);
+    }
+
+    /**
+     * nhu reserve nhung khong nem loi: dong thieu hang thi bo qua, tra ve danh sach dong thieu.
+     * dung khi tien da vao (vd VNPay tra ve sau khi don da het han giu hang) - khong duoc rollback.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public List<String> tryReserve(Collection<StockLine> lines) {
+        return take(lines);
+    }
+
+    private List<String> take(Collection<StockLine> lines) {
+        // gom theo id (TreeMap: cap nhat theo thu tu id => 2 checkout cheo nhau khong deadlock)
+        Map<Long, Integer> variants = new TreeMap<>();
+        Map<Long, Integer> products = new TreeMap<>();
+        for (StockLine l : lines) {
+            if (l.quantity() <= 0) throw new IllegalArgumentException("Quantity must be positive");
+            if (l.variantId() != null) variants.merge(l.variantId(), l.quantity(), Integer::sum);
+            else products.merge(l.productId(), l.quantity(), Integer::sum);
+        }
+
+        List<String> shortLines = new ArrayList<>();
+        // flash sale: tra loi ngay tu bo dem; rollback checkout => FlashSaleStock tu tra lai
+        variants.entrySet().removeIf(e -> switch (flashSale.take(e.getKey(), e.getValue())) {
+            case NOT_ON_SALE -> false;
+            case TAKEN -> true;
+            case SOLD_OUT -> shortLines.add("variant " + e.getKey());
+        });
+        for (Long id : take(TAKE_VARIANT, variants)) shortLines.add("variant " + id);
+        for (Long id : take(TAKE_PRODUCT, products)) shortLines.add("product " + id);
+        if (shortLines.isEmpty()) publishSoldOut(variants.keySet(), products.keySet());
+        return shortLines;
+    }
+
+    // 1 round-trip cho ca nhom; tra ve id cac dong khong du hang
+    private List<Long> take(String sql, Map<Long, Integer> qtyById) {
+        if (qtyById.isEmpty()) return List.of();
+        List<Map.Entry<Long, Integer>> rows = new ArrayList<>(qtyById.entrySet());
+        int[] updated = jdbcTemplate.batchUpdate(sql, rows, rows.size(), (ps, e) -> {
+            ps.setInt(1, e.getValue());
+            ps.setLong(2, e.getKey());
+            ps.setInt(3, e.getValue());
+        })[0];
+
+        List<Long> missing = new ArrayList<>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) missing.add(rows.get(i).getKey());
+        }
+        return missing;
+    }
+
+    // chi san pham vua het hang moi can cap nhat product_card/cache (khong phat event cho moi don)
+    private void publishSoldOut(Set<Long> variantIds, Set<Long> productIds) {
+        Set<Long> soldOut = new TreeSet<>();
+        if (!variantIds.isEmpty()) {
+            soldOut.addAll(namedJdbc.queryForList(
+                    "SELECT product_id FROM product_variant WHERE id IN (:ids) AND stock = 0",
+                    new MapSqlParameterSource("ids", variantIds), Long.class));
+        }
+        if (!productIds.isEmpty()) {
+            soldOut.addAll(namedJdbc.queryForList(
+                    "SELECT id FROM product WHERE id IN (:ids) AND quantity = 0",
+                    new MapSqlParameterSource("ids", productIds), Long.class));
+        }
+        soldOut.forEach(id -> events.publishEvent(new ProductChangedEvent(id)));
+    }
+}
@@ -2,11 +2,16 @@ package com.example.bazuuyu.service;
 
 import com.example.bazuuyu.dto.request.ShippingAddressRequest;
 import com.example.bazuuyu.entity.*;
+import com.example.bazuuyu.exception.InvalidOrderStateException;
+import com.example.bazuuyu.order.events.OrderCompletedEvent;
 import com.example.bazuuyu.order.events.OrderPlacedEvent;
 import com.example.bazuuyu.order.events.PaymentCapturedEvent;
+import com.example.bazuuyu.repository.CartItemRepository;
 import com.example.bazuuyu.repository.CartRepository;
 import com.example.bazuuyu.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,10 +24,14 @@ import java.util.*;
 @RequiredArgsConstructor
 public class OrderService {
 
+    private static final Logger log = LoggerFactory.getLogger(OrderService.class);
+
     private final OrderRepository orderRepository;
-    private final CartItemService cartItemService;
+    private final CartItemRepository cartItemRepository;
     private final CartService cartService;
     private final CartRepository cartRepository;
+    private final InventoryService inventoryService;
+    private final InventoryHoldService inventoryHoldService;
     private final ApplicationEventPublisher events;
 
     public record OrderSummary(String orderNumber, String customerEmail, BigDecimal total) {}
@@ -38,55 +47,11 @@ public class OrderService {
     }
 
     // ====== Checkout from active cart (by Customer) ======
+    @Transactional
     public Order placeOrder(Customer customer) {
         Cart cart = cartService.getActiveCart(customer)
                 .orElseThrow(() -> new IllegalStateException("No active cart found"));
-
-        List<CartItem> cartItems = cartItemService.getCartItemsByCart(cart);
-        if (cartItems.isEmpty()) {
-            throw new IllegalStateException("Cart is empty");
-        }
-
-        List<OrderItem> orderItems = new ArrayList<>();
-        BigDecimal total = BigDecimal.ZERO;
-
-        for (CartItem ci : cartItems) {
-            BigDecimal unitPrice = ci.getProduct().getPrice();
-            BigDecimal line = unitPrice.multiply(BigDecimal.valueOf(ci.getQuantity()));
-            total = total.add(line);
-
-            OrderItem item = OrderItem.builder()
-                    .product(ci.getProduct())
-                    .quantity(ci.getQuantity())
-                    .price(unitPrice)
-                    .build();
-            orderItems.add(item);
-        }
-
-        Order order = Order.builder()
-                .customer(customer)
-                .orderDate(LocalDateTime.now())
-                .orderCode(genCode())
-                .totalAmount(total)
-                .status(Order.OrderStatus.CREATED)
-                .build();
-
-        // save to generate ID
-        order = orderRepository.save(order);
-
-        // attach items
-        for (OrderItem item : orderItems) {
-            item.setOrder(order);
-        }
-        order.setItems(orderItems);
-
-        // mark cart checked out
-        cartService.updateCartStatus(cart.getId(), "CHECKED_OUT");
-        cartItemService.clearItemsByCart(cart);
-
-        Order saved = orderRepository.save(order);
-        events.publishEvent(new OrderPlacedEvent(saved.getId()));
-        return saved;
+        return checkout(cart, customer, null);
     }
 
     // ====== Checkout by cartId + shipping (used in /checkout/cart/{cartId}) ======
@@ -97,15 +62,6 @@ public class OrderService {
         Cart cart = cartRepository.findById(cartId)
                 .orElseThrow(() -> new IllegalStateException("Cart not found"));
 
-        List<CartItem> cartItems = cartItemService.getCartItemsByCart(cart);
-        if (cartItems.isEmpty()) throw new IllegalStateException("Cart is empty");
-
-        BigDecimal total = cartItems.stream()
-                .map(ci -> ci.getProduct()
-                        .getPrice()
-                        .multiply(BigDecimal.valueOf(ci.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-
         String phone = normalizeVNPhone(dto.getPhone());
 
         ShippingAddress addr = ShippingAddress.builder()
@@ -119,38 +75,85 @@ public class OrderService {
                 .country(dto.getCountry() == null ? "VN" : dto.getCountry())
                 .build();
 
+        return checkout(cart, cart.getCustomer(), addr);
+    }
+
+    /**
+     * so statement khong phu thuoc so dong gio: 1 SELECT dong gio (kem product/variant), tru kho theo batch,
+     * id tu sequence pooled => INSERT orders + 1 batch INSERT order_item, 1 batch inventory_hold,
+     * 1 UPDATE cart, 1 DELETE cart_item theo cart_id.
+     */
+    private Order checkout(Cart cart, Customer customer, ShippingAddress addr) {
+        List<CartItem> cartItems = cartItemRepository.findWithProductsByCartId(cart.getId());
+        if (cartItems.isEmpty()) throw new IllegalStateException("Cart is empty");
+
+        // het hang => InsufficientStockException, rollback ca don
+        List<InventoryService.StockLine> stockLines = toStockLines(cartItems);
+        inventoryService.reserve(stockLines);
+
         Order order = Order.builder()
-                .customer(cart.getCustomer())
+                .customer(customer)
                 .orderDate(LocalDateTime.now())
                 .orderCode(genCode())
-                .totalAmount(total)
                 .status(Order.OrderStatus.CREATED)
                 .shippingAddress(addr)
                 .build();
 
-        order = orderRepository.save(order);
-
-        List<OrderItem> orderItems = new ArrayList<>();
+        List<OrderItem> orderItems = new ArrayList<>(cartItems.size());
+        BigDecimal total = BigDecimal.ZERO;
         for (CartItem ci : cartItems) {
-            orderItems.add(
-                    OrderItem.builder()
-                            .order(order)
-                            .product(ci.getProduct())
-                            .quantity(ci.getQuantity())
-                            .price(ci.getProduct().getPrice())
-                            .build()
-            );
+            BigDecimal unitPrice = unitPrice(ci);
+            total = total.add(unitPrice.multiply(BigDecimal.valueOf(ci.getQuantity())));
+            orderItems.add(OrderItem.builder()
+                    .order(order)
+                    .product(ci.getProduct())
+                    .variant(ci.getVariant())
+                    .quantity(ci.getQuantity())
+                    .price(unitPrice)
+                    .build());
         }
+        order.setTotalAmount(total);
         order.setItems(orderItems);
 
-        cartService.updateCartStatus(cart.getId(), "CHECKED_OUT");
-        cartItemService.clearItemsByCart(cart);
+        // persist 1 lan (cascade items); flush ngay vi inventory_hold co FK toi orders
+        Order saved = orderRepository.saveAndFlush(order);
+
+        // giu hang den khi thanh toan hoac het han (OrderExpirySweeper)
+        inventoryHoldService.hold(saved.getId(), stockLines);
+
+        // mark cart checked out (cart dang duoc quan ly => UPDATE luc flush)
+        cart.setStatus("CHECKED_OUT");
+        cart.setCheckedOutAt(LocalDateTime.now()); // CartPurgeJob tinh tu day
+        cartItemRepository.deleteByCartId(cart.getId());
 
-        Order saved = orderRepository.save(order);
         events.publishEvent(new OrderPlacedEvent(saved.getId()));
         return saved;
     }
 
+    private static List<InventoryService.StockLine> toStockLines(Order order) {
+        return order.getItems().stream()
+                .map(oi -> new InventoryService.StockLine(
+                        oi.getProduct().getId(),
+                        oi.getVariant() == null ? null : oi.getVariant().getId(),
+                        oi.getQuantity()))
+                .toList();
+    }
+
+    // cung nguon gia voi CartItemRepository.summarize: gia variant neu co, khong thi gia san pham
+    private static BigDecimal unitPrice(CartItem ci) {
+        ProductVariant v = ci.getVariant();
+        return v != null && v.getPrice() != null ? v.getPrice() : ci.getProduct().getPrice();
+    }
+
+    private static List<InventoryService.StockLine> toStockLines(List<CartItem> cartItems) {
+        return cartItems.stream()
+                .map(ci -> new InventoryService.StockLine(
+                        ci.getProduct().getId(),
+                        ci.getVariant() == null ? null : ci.getVariant().getId(),
+                        ci.getQuantity()))
+                .toList();
+    }
+
     private String normalizeVNPhone(String phone) {
         if (phone == null) return null;
         String p = phone.trim().replaceAll("\\s+", "");
@@ -188,7 +191,9 @@ public class OrderService {
     // ====== PAYMENT / STATUS STATE MACHINE ======
     @Transactional
     public void markAwaitingPayment(String orderCode, Order.PaymentChannel channel) {
-        Order o = orderRepository.findByOrderCode(orderCode)
+        // khoa dong don nhu markCodPending/markPaidByVnpay: sweeper (SKIP LOCKED) khong chuyen EXPIRED giua chung,
+        // va neu sweeper da commit truoc thi doc duoc EXPIRED, khong ghi de thanh AWAITING_PAYMENT
+        Order o = orderRepository.findByOrderCodeForUpdate(orderCode)
                 .orElseThrow(() -> new IllegalStateException("Order not found"));
 
         if (o.getStatus() == Order.OrderStatus.CREATED) {
@@ -196,26 +201,48 @@ public class OrderService {
             o.setStatus(Order.OrderStatus.AWAITING_PAYMENT);
             orderRepository.save(o);
         }
+        if (o.getStatus() == Order.OrderStatus.AWAITING_PAYMENT) {
+            inventoryHoldService.extendForPayment(o.getId());
+        }
     }
 
     @Transactional
     public void markCodPending(String orderCode) {
-        Order o = orderRepository.findByOrderCode(orderCode)
+        Order o = orderRepository.findByOrderCodeForUpdate(orderCode)
                 .orElseThrow(() -> new IllegalStateException("Order not found"));
+        switch (o.getStatus()) {
+            // chua thanh toan (COD ngay sau checkout: CREATED), hang dang giu
+            case CREATED, AWAITING_PAYMENT -> { }
+            // hang da tra lai kho: lay lai, het hang => InsufficientStockException (chua co tien nen rollback duoc)
+            case EXPIRED -> inventoryService.reserve(toStockLines(o));
+            // da COD/da tra/da huy: khong doi kenh, khong dung lai hold
+            default -> throw new InvalidOrderStateException(orderCode, o.getStatus(), "switch to COD");
+        }
         o.setPaymentChannel(Order.PaymentChannel.COD);
         o.setStatus(Order.OrderStatus.COD_PENDING);
         orderRepository.save(o);
+        inventoryHoldService.convert(o.getId()); // COD: giao hang => tru that
     }
 
     @Transactional
     public void markPaidByVnpay(String orderCode, String vnpTxnNo) {
-        Order o = orderRepository.findByOrderCode(orderCode)
+        Order o = orderRepository.findByOrderCodeForUpdate(orderCode)
                 .orElseThrow(() -> new IllegalArgumentException("Order not found"));
         if (o.getStatus() != Order.OrderStatus.PAID) {
+            if (o.getStatus() == Order.OrderStatus.EXPIRED) {
+                // tien den sau khi sweeper da tra hang: lay lai neu con, khong thi de admin xu ly
+                List<String> shortLines = inventoryService.tryReserve(toStockLines(o));
+                if (!shortLines.isEmpty()) {
+                    log.warn("Order {} paid after hold expired, out of stock: {}", orderCode, shortLines);
+                }
+            } else {
+                inventoryHoldService.convert(o.getId());
+            }
             o.setPaymentTxnId(vnpTxnNo);
             o.setStatus(Order.OrderStatus.PAID);
             orderRepository.save(o);
             events.publishEvent(new PaymentCapturedEvent(o.getId()));
+            events.publishEvent(new OrderCompletedEvent(o.getId()));
         }
     }
 
@@ -226,6 +253,7 @@ public class OrderService {
         if (o.getStatus() == Order.OrderStatus.COD_PENDING) {
             o.setStatus(Order.OrderStatus.PAID);
             orderRepository.save(o);
+            events.publishEvent(new OrderCompletedEvent(o.getId()));
         }
     }
 
@@ -250,7 +278,16 @@ public class OrderService {
             );
         }
 
+        Order.OrderStatus previous = order.getStatus();
         order.setStatus(newStatus);
         orderRepository.save(order);
+        if (newStatus == Order.OrderStatus.CANCELED || newStatus == Order.OrderStatus.EXPIRED) {
+            inventoryHoldService.release(order.getId());
+        } else if (newStatus == Order.OrderStatus.PAID || newStatus == Order.OrderStatus.COD_PENDING) {
+            inventoryHoldService.convert(order.getId());
+        }
+        if (newStatus == Order.OrderStatus.PAID && previous != Order.OrderStatus.PAID) {
+            events.publishEvent(new OrderCompletedEvent(order.getId()));
+        }
     }
 }
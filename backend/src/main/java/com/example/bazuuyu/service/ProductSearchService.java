@@ -1,34 +1,60 @@
 package com.example.bazuuyu.service;
 
+import com.example.bazuuyu.catalog.cache.SearchFacetCache;
+import com.example.bazuuyu.catalog.cache.SearchResultCache;
+import com.example.bazuuyu.dto.response.CursorPageResponse;
 import com.example.bazuuyu.dto.response.ProductResponse;
+import com.example.bazuuyu.dto.response.SearchFacetsResponse;
 import com.example.bazuuyu.entity.Category;
 import com.example.bazuuyu.entity.Product;
 import com.example.bazuuyu.entity.ProductImage;
 import com.example.bazuuyu.repository.ProductRepository;
+import com.example.bazuuyu.utils.KeysetCursor;
+import com.example.bazuuyu.utils.VietnameseNormalizer;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class ProductSearchService {
 
+    private static final String CURSOR_SORT = "latest";
+
+    // nguong cua width_bucket trong ProductRepository.facetCounts (VND, gia hien thi)
+    static final List<BigDecimal> PRICE_BUCKET_BOUNDS = List.of(
+            BigDecimal.valueOf(100_000), BigDecimal.valueOf(300_000),
+            BigDecimal.valueOf(500_000), BigDecimal.valueOf(1_000_000));
+
     private final ProductRepository productRepository;
+    private final SearchFacetCache facetCache;
+    private final SearchResultCache resultCache;
+
+    // like = search_text LIKE '%kw%' (trigram index), fulltext = tsvector + pg_trgm, xep hang bang ts_rank
+    @Value("${search.engine:like}")
+    private String engine;
 
     public Page<ProductResponse> search(String keyword, String categoryStr, int page, int size) {
 
-        String kw = (keyword == null) ? "" : keyword.trim();
-        Category category = null;
+        String kw = VietnameseNormalizer.normalize(keyword); // "Áo" -> "ao", khop voi search_text
+        Category category = parseCategory(categoryStr);
+
+        return resultCache.get(kw, category, page, size, () -> doSearch(kw, category, page, size));
+    }
 
-        if (categoryStr != null && !categoryStr.isBlank()) {
-            try {
-                category = Category.valueOf(categoryStr.toUpperCase());
-            } catch (IllegalArgumentException e) {
-                // invalid category string -> ignore category filter
-                category = null;
+    private Page<ProductResponse> doSearch(String kw, Category category, int page, int size) {
+        if ("fulltext".equalsIgnoreCase(engine)) {
+            String tsquery = toPrefixTsQuery(kw);
+            if (tsquery != null) {
+                return searchFullText(tsquery, kw, category, PageRequest.of(page, size));
             }
+            // khong co token nao (keyword rong) -> chi loc theo category nhu cu
         }
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
@@ -43,6 +69,115 @@ public class ProductSearchService {
         return new PageImpl<>(dtoList, pageable, productPage.getTotalElements());
     }
 
+    // keyset mode: (createdAt, id) cua dong cuoi -> nextCursor, khong OFFSET va khong COUNT(*)
+    public CursorPageResponse<ProductResponse> searchAfter(String keyword, String categoryStr,
+                                                           String cursor, int size) {
+        String kw = VietnameseNormalizer.normalize(keyword); // "Áo" -> "ao", khop voi search_text
+        Category category = parseCategory(categoryStr);
+        int limit = Math.min(Math.max(size, 1), ProductService.MAX_PAGE_SIZE);
+        KeysetCursor after = KeysetCursor.decode(cursor, CURSOR_SORT);
+        Limit fetch = Limit.of(limit + 1);
+
+        List<Product> rows = after == null
+                ? productRepository.searchFirst(kw, category, fetch)
+                : productRepository.searchAfter(kw, category,
+                        after.timestampValue(), after.id(), fetch);
+
+        return CursorPageResponse.of(rows, limit, this::toResponse,
+                p -> KeysetCursor.encode(CURSOR_SORT, p.getCreatedAt(), p.getId()));
+    }
+
+    // facet counts tren cung tap ket qua voi search(keyword, category), cache theo query da normalize
+    public SearchFacetsResponse facets(String keyword, String categoryStr) {
+        String kw = VietnameseNormalizer.normalize(keyword);
+        Category category = parseCategory(categoryStr);
+        String tsquery = "fulltext".equalsIgnoreCase(engine) ? toPrefixTsQuery(kw) : null;
+
+        return facetCache.get(kw, category, engine, () -> toFacets(productRepository.facetCounts(
+                kw, tsquery, category == null ? null : category.name())));
+    }
+
+    private SearchFacetsResponse toFacets(List<ProductRepository.FacetRow> rows) {
+        Map<Category, Long> categories = new EnumMap<>(Category.class);
+        long[] buckets = new long[PRICE_BUCKET_BOUNDS.size() + 1];
+        long inStock = 0, outOfStock = 0, bestSeller = 0, newArrival = 0;
+
+        for (ProductRepository.FacetRow r : rows) {
+            int g = r.getG();
+            long n = r.getCnt();
+            if ((g & 0b10000) == 0) {
+                if (r.getCategory() != null) categories.put(Category.valueOf(r.getCategory()), n);
+            } else if ((g & 0b01000) == 0) {
+                if (r.getPriceBucket() != null) buckets[r.getPriceBucket()] += n;
+            } else if ((g & 0b00100) == 0) {
+                if (Boolean.TRUE.equals(r.getInStock())) inStock += n; else outOfStock += n;
+            } else if ((g & 0b00010) == 0) {
+                if (Boolean.TRUE.equals(r.getBestSeller())) bestSeller += n;
+            } else if ((g & 0b00001) == 0) {
+                if (Boolean.TRUE.equals(r.getNewArrival())) newArrival += n;
+            }
+        }
+
+        List<SearchFacetsResponse.PriceBucket> priceBuckets = new ArrayList<>(buckets.length);
+        for (int i = 0; i < buckets.length; i++) {
+            BigDecimal min = i == 0 ? BigDecimal.ZERO : PRICE_BUCKET_BOUNDS.get(i - 1);
+            BigDecimal max = i < PRICE_BUCKET_BOUNDS.size() ? PRICE_BUCKET_BOUNDS.get(i) : null;
+            priceBuckets.add(new SearchFacetsResponse.PriceBucket(min, max, buckets[i]));
+        }
+
+        return SearchFacetsResponse.builder()
+                .categories(categories)
+                .priceBuckets(priceBuckets)
+                .inStock(inStock)
+                .outOfStock(outOfStock)
+                .bestSeller(bestSeller)
+                .newArrival(newArrival)
+                .build();
+    }
+
+    private Page<ProductResponse> searchFullText(String tsquery, String kw, Category category,
+                                                 Pageable pageable) {
+        String cat = category == null ? null : category.name();
+        List<ProductRepository.SearchHit> hits = productRepository.searchFullText(
+                tsquery, kw, cat, pageable.getPageSize(), pageable.getOffset());
+        long total = productRepository.countFullText(tsquery, kw, cat);
+
+        // giu thu tu theo rank cua hits
+        Map<Long, Product> byId = productRepository.findAllById(
+                        hits.stream().map(ProductRepository.SearchHit::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+
+        List<ProductResponse> dtoList = new ArrayList<>(hits.size());
+        for (ProductRepository.SearchHit hit : hits) {
+            Product p = byId.get(hit.getId());
+            if (p == null) continue; // deleted in between
+            ProductResponse r = toResponse(p);
+            r.setHighlight(hit.getSnippet());
+            dtoList.add(r);
+        }
+        return new PageImpl<>(dtoList, pageable, total);
+    }
+
+    // "ao thu" -> "ao:* & thu:*" (moi tu la prefix, hop voi go tung phim); kw da normalize
+    static String toPrefixTsQuery(String kw) {
+        String joined = Arrays.stream(kw.split("[^\\p{L}\\p{N}]+"))
+                .filter(t -> !t.isEmpty())
+                .map(t -> t + ":*")
+                .collect(Collectors.joining(" & "));
+        return joined.isEmpty() ? null : joined;
+    }
+
+    private Category parseCategory(String categoryStr) {
+        if (categoryStr == null || categoryStr.isBlank()) return null;
+        try {
+            return Category.valueOf(categoryStr.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            // invalid category string -> ignore category filter
+            return null;
+        }
+    }
+
     private ProductResponse toResponse(Product p) {
         List<String> urls = p.getProductImages() == null
                 ? List.of()
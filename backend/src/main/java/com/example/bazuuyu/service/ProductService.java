@@ -1,21 +1,32 @@
 package com.example.bazuuyu.service;
 
+import com.example.bazuuyu.catalog.cache.ProductCatalogCache;
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.catalog.sales.SalesCounterWriter;
 import com.example.bazuuyu.dto.request.ProductRequest;
+import com.example.bazuuyu.dto.response.CursorPageResponse;
+import com.example.bazuuyu.dto.response.ProductCardResponse;
 import com.example.bazuuyu.dto.response.ProductResponse;
 import com.example.bazuuyu.entity.Product;
 import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.ProductCard;
 import com.example.bazuuyu.entity.ProductImage;
 import com.example.bazuuyu.mapper.ProductMapper;
+import com.example.bazuuyu.repository.ProductCardRepository;
 import com.example.bazuuyu.repository.ProductRepository;
+import com.example.bazuuyu.utils.KeysetCursor;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
 import java.util.List;
-import java.util.ArrayList;
 import java.util.Optional;
 
 /**
@@ -25,11 +36,18 @@ import java.util.Optional;
 @RequiredArgsConstructor
 public class ProductService {
 
+    public static final int MAX_PAGE_SIZE = 48;
+
     private final ProductRepository productRepository;
+    private final ProductCardRepository productCardRepository;
+    private final ProductCatalogCache catalogCache;
+    private final ApplicationEventPublisher events;
 
     // tao san pham tu doi tuong Product entity
     public Product create(Product product) {
-        return productRepository.save(product);
+        Product saved = productRepository.save(product);
+        catalogChanged(saved.getId());
+        return saved;
     }
 
     // tao san pham tu ProductRequest DTO, bao gom anh
@@ -57,7 +75,9 @@ public class ProductService {
             i++;
         }
 
-        return productRepository.save(p); // One save is enough with cascade
+        Product saved = productRepository.save(p); // One save is enough with cascade
+        catalogChanged(saved.getId());
+        return saved;
     }
 
     // lay toan bo san pham (danh cho admin)
@@ -68,14 +88,26 @@ public class ProductService {
     // xoa san pham theo ID
     public void deleteById(Long id) {
         productRepository.deleteById(id);
+        catalogChanged(id);
     }
 
-    // loc san pham theo danh muc va phan trang (cho customer)
+    // loc san pham theo danh muc va phan trang (cho customer), qua cache
     public Page<ProductResponse> listProducts(Category category, Pageable pageable) {
-        Page<Product> page = (category != null)
-                ? productRepository.findAllByCategory(category, pageable)
-                : productRepository.findAll(pageable);
-        return page.map(ProductMapper::toResponse);
+        return catalogCache.getPage(category, pageable, () -> {
+            Page<Product> page = (category != null)
+                    ? productRepository.findAllByCategory(category, pageable)
+                    : productRepository.findAll(pageable);
+            return page.map(ProductMapper::toResponse);
+        });
+    }
+
+    // the san pham cho trang listing: doc bang product_card (1 index scan + COUNT), khong cham variants/images
+    public Page<ProductCardResponse> listProductCards(Category category, int page, int size) {
+        Pageable pageable = pageOf(page, size);
+        Page<ProductCard> cards = category != null
+                ? productCardRepository.findPageByCategory(category, pageable)
+                : productCardRepository.findPage(pageable);
+        return cards.map(ProductMapper::toCardResponse);
     }
 
     //tim san pham theo ID
@@ -83,19 +115,16 @@ public class ProductService {
         return productRepository.findById(id);
     }
 
-    //for shop page
-    public List<ProductResponse> getNewArrivals() {
-        List<Product> newArrivals = productRepository.findByIsNewArrivalTrue();
-        List<Product> others = productRepository.findAll()
-                .stream()
-                .filter(p -> !p.isNewArrival())
-                .toList();
-
-        List<Product> combined = new ArrayList<>();
-        combined.addAll(newArrivals);
-        combined.addAll(others);
+    // chi tiet san pham cho customer, qua cache (entity khong duoc cache)
+    public Optional<ProductResponse> findResponseById(Long id) {
+        return Optional.ofNullable(catalogCache.getProduct(id, key ->
+                productRepository.findById(key).map(ProductMapper::toResponse).orElse(null)));
+    }
 
-        return combined.stream().map(ProductMapper::toResponse).toList();
+    //for shop page: new arrivals first, then the rest of the catalog (paged in DB)
+    public Page<ProductResponse> getNewArrivals(int page, int size) {
+        return productRepository.findAllNewArrivalsFirst(pageOf(page, size))
+                .map(ProductMapper::toResponse);
     }
 
     //for landing page
@@ -107,18 +136,21 @@ public class ProductService {
                 .toList();
     }
 
-    public List<ProductResponse> getBestSellers() {
-        List<Product> bestSellers = productRepository.findByIsBestSellerTrue();
-        List<Product> others = productRepository.findAll()
-                .stream()
-                .filter(p -> !p.isBestSeller())
-                .toList();
+    // xep theo so luong ban trong windowDays ngay gan nhat (7 hoac 30), co isBestSeller la fallback
+    public Page<ProductResponse> getBestSellers(int page, int size, int windowDays) {
+        int days = Math.min(Math.max(windowDays, 1), SalesCounterWriter.MAX_WINDOW_DAYS);
+        return productRepository.findAllRankedBySales(LocalDate.now().minusDays(days - 1L), pageOf(page, size))
+                .map(ProductMapper::toResponse);
+    }
 
-        List<Product> combined = new ArrayList<>();
-        combined.addAll(bestSellers);
-        combined.addAll(others);
+    // cache san pham/search va CatalogVersion cap nhat sau khi transaction nay commit
+    private void catalogChanged(Long productId) {
+        events.publishEvent(new ProductChangedEvent(productId));
+    }
 
-        return combined.stream().map(ProductMapper::toResponse).toList();
+    // khong cho client tu chon size lon tuy y
+    private static Pageable pageOf(int page, int size) {
+        return PageRequest.of(Math.max(page, 0), Math.min(Math.max(size, 1), MAX_PAGE_SIZE));
     }
 
     public List<ProductResponse> getSortedProducts(String sortBy) {
@@ -142,6 +174,34 @@ public class ProductService {
                 .toList();
     }
 
+    // shop page theo keyset: (cot sort, id) cua dong cuoi -> nextCursor, khong COUNT(*)
+    public CursorPageResponse<ProductResponse> getSortedProducts(String sortBy, String cursor, int size) {
+        String sort = switch (sortBy == null ? "latest" : sortBy) {
+            case "priceLowToHigh", "priceHighToLow" -> sortBy;
+            default -> "latest";
+        };
+        int limit = Math.min(Math.max(size, 1), MAX_PAGE_SIZE);
+        KeysetCursor after = KeysetCursor.decode(cursor, sort);
+        Limit fetch = Limit.of(limit + 1);
+
+        List<Product> rows = switch (sort) {
+            case "priceLowToHigh" -> after == null
+                    ? productRepository.findCheapest(fetch)
+                    : productRepository.findCheapestAfter(after.decimalValue(), after.id(), fetch);
+            case "priceHighToLow" -> after == null
+                    ? productRepository.findPriciest(fetch)
+                    : productRepository.findPriciestAfter(after.decimalValue(), after.id(), fetch);
+            default -> after == null
+                    ? productRepository.findLatest(fetch)
+                    : productRepository.findLatestAfter(after.timestampValue(), after.id(), fetch);
+        };
+
+        return CursorPageResponse.of(rows, limit, ProductMapper::toResponse,
+                p -> KeysetCursor.encode(sort,
+                        sort.equals("latest") ? p.getCreatedAt() : p.getPrice().toPlainString(),
+                        p.getId()));
+    }
+
     @Transactional
     public Product updateProduct(Long id, ProductRequest req) {
         Product existing = productRepository.findById(id)
@@ -168,6 +228,7 @@ public class ProductService {
             i++;
         }
 
+        catalogChanged(id); // evicted after commit
         return existing; // dirty checking will flush
     }
 
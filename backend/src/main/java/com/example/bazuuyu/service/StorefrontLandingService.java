@@ -0,0 +1,109 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.catalog.sales.SalesCounterWriter;
+import com.example.bazuuyu.dto.response.LandingResponse;
+import com.example.bazuuyu.mapper.ProductMapper;
+import com.example.bazuuyu.repository.ProductCardRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * snapshot cua landing page: dung nen, serialize JSON 1 lan, request chi tra lai mang byte (0 query).
+ * dung lai khi catalog doi (gom nhieu thay doi trong 1 chu ky check) hoac khi snapshot qua cu
+ * (bo dem ban hang cho khu best sellers chi duoc cap nhat theo max-age).
+ */
+@Service
+public class StorefrontLandingService {
+
+    private static final Logger log = LoggerFactory.getLogger(StorefrontLandingService.class);
+
+    public record Snapshot(byte[] json, String etag, Instant builtAt) {}
+
+    private final ProductCardRepository productCardRepository;
+    private final ObjectMapper objectMapper;
+    private final int sectionSize;
+    private final Duration maxAge;
+
+    private final AtomicBoolean dirty = new AtomicBoolean(true);
+    private volatile Snapshot snapshot;
+
+    public StorefrontLandingService(ProductCardRepository productCardRepository,
+                                    ObjectMapper objectMapper,
+                                    @Value("${storefront.landing.section-size:16}") int sectionSize,
+                                    @Value("${storefront.landing.max-age:PT5M}") Duration maxAge) {
+        this.productCardRepository = productCardRepository;
+        this.objectMapper = objectMapper;
+        this.sectionSize = sectionSize;
+        this.maxAge = maxAge;
+    }
+
+    public Snapshot current() {
+        Snapshot s = snapshot;
+        if (s == null) {
+            rebuild(); // chi khi request den truoc ApplicationReadyEvent
+            s = snapshot;
+        }
+        return s;
+    }
+
+    // ca event tu instance khac (CatalogInvalidationBus) cung danh dau
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void on(ProductChangedEvent e) {
+        dirty.set(true);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void init() {
+        rebuild();
+    }
+
+    @Scheduled(fixedDelayString = "${storefront.landing.check-interval:PT10S}")
+    public void refreshIfNeeded() {
+        Snapshot s = snapshot;
+        boolean stale = s == null || s.builtAt().plus(maxAge).isBefore(Instant.now());
+        if (dirty.get() || stale) rebuild();
+    }
+
+    public synchronized void rebuild() {
+        dirty.set(false); // thay doi den trong luc build se danh dau lai
+        try {
+            Instant builtAt = Instant.now();
+            LandingResponse body = new LandingResponse(
+                    productCardRepository.findNewArrivals(Limit.of(sectionSize)).stream()
+                            .map(ProductMapper::toCardResponse).toList(),
+                    productCardRepository.findBestSellers(
+                                    LocalDate.now().minusDays(SalesCounterWriter.MAX_WINDOW_DAYS - 1L),
+                                    Limit.of(sectionSize)).stream()
+                            .map(ProductMapper::toCardResponse).toList());
+            byte[] json = objectMapper.writeValueAsBytes(body);
+            snapshot = new Snapshot(json, etagOf(json), builtAt);
+        } catch (JsonProcessingException | RuntimeException ex) {
+            dirty.set(true); // giu snapshot cu, thu lai o chu ky sau
+            log.warn("Landing snapshot rebuild failed: {}", ex.getMessage());
+        }
+    }
+
+    // cung noi dung => cung ETag tren moi instance va qua moi lan rebuild (body khong chua thoi diem build)
+    private static String etagOf(byte[] json) {
+        CRC32 crc = new CRC32();
+        crc.update(json);
+        return "\"l-" + Long.toHexString(crc.getValue()) + "-" + json.length + "\"";
+    }
+}
@@ -5,12 +5,12 @@ import com.example.bazuuyu.entity.*;
 import com.example.bazuuyu.repository.*;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDateTime;
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -19,6 +19,7 @@ public class WishlistService {
     private final WishlistRepository wishlistRepository;
     private final CustomerRepository customerRepository;
     private final ProductRepository productRepository;
+    private final JdbcTemplate jdbcTemplate;
 
     public Wishlist getOrCreateWishlist(Long customerId) {
         return wishlistRepository.findByCustomerId(customerId).orElseGet(() -> {
@@ -82,13 +83,27 @@ public class WishlistService {
                 .collect(Collectors.toList());
     }
 
+    // gop wishlist guest luc dang nhap: 1 query products, 1 query cac san pham da co, 1 JDBC batch cho dong moi
     @Transactional
     public void merge(Long customerId, List<Long> productIds) {
         if (productIds == null || productIds.isEmpty()) return;
-        for (Long pid : productIds) {
-            if (pid == null) continue;
-            addProductToWishlist(customerId, pid); // already dedupes
+        Set<Long> wanted = productIds.stream().filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        if (wanted.isEmpty()) return;
+
+        Set<Long> found = productRepository.findAllById(wanted).stream()
+                .map(Product::getId).collect(Collectors.toSet());
+        for (Long pid : wanted) {
+            if (!found.contains(pid)) throw new RuntimeException("Product not found");
         }
+
+        Wishlist wishlist = getOrCreateWishlist(customerId);
+        wanted.removeAll(wishlistRepository.findProductIds(wishlist.getId())); // already dedupes
+        if (wanted.isEmpty()) return;
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> rows = wanted.stream().map(pid -> new Object[]{wishlist.getId(), pid, now}).toList();
+        jdbcTemplate.batchUpdate("INSERT INTO wishlist_item (wishlist_id, product_id, added_at) VALUES (?, ?, ?)", rows);
     }
 
 }
\ No newline at end of file
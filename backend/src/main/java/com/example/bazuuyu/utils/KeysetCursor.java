@@ -0,0 +1,59 @@
+package com.example.bazuuyu.utils;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.DateTimeException;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * opaque cursor cho keyset pagination: (sort, gia tri cot sort, id) cua dong cuoi cung.
+ * client chi gui lai nguyen chuoi nextCursor, khong can hieu noi dung => moi loi doc cursor (ke ca gia tri
+ * sai kieu) deu la IllegalArgumentException, controller tra 400.
+ */
+public record KeysetCursor(String sort, String value, long id) {
+
+    public String encode() {
+        String raw = sort + "|" + value + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String encode(String sort, Object value, Long id) {
+        return new KeysetCursor(sort, String.valueOf(value), id).encode();
+    }
+
+    /** null/blank => trang dau tien. cursor cua sort khac hoac hong => IllegalArgumentException */
+    public static KeysetCursor decode(String cursor, String expectedSort) {
+        if (cursor == null || cursor.isBlank()) return null;
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", -1);
+            if (parts.length != 3 || !parts[0].equals(expectedSort)) {
+                throw new IllegalArgumentException("Cursor does not match sort " + expectedSort);
+            }
+            return new KeysetCursor(parts[0], parts[1], Long.parseLong(parts[2]));
+        } catch (IllegalArgumentException e) {
+            // also covers bad base64 and NumberFormatException
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /** gia tri cot sort "latest" (created_at) */
+    public LocalDateTime timestampValue() {
+        try {
+            return LocalDateTime.parse(value);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+
+    /** gia tri cot sort theo gia */
+    public BigDecimal decimalValue() {
+        try {
+            return new BigDecimal(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor", e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.bazuuyu.utils;
+
+import java.text.Normalizer;
+
+/**
+ * bo dau tieng Viet cho search: "Áo Thun  Đỏ" -> "ao thun do".
+ * lowercase, đ -> d, bo dau thanh/dau mu, gom khoang trang.
+ * dung ca luc ghi (Product.searchText) va luc query (ProductSearchService).
+ */
+public final class VietnameseNormalizer {
+    private VietnameseNormalizer() {}
+
+    // Latin-1 .. Latin Extended Additional (U+1E00-1EFF chua het nguyen am co dau tieng Viet)
+    private static final int TABLE_SIZE = 0x1F00;
+    private static final char DROP = 0;
+    private static final char[] FOLD = buildTable();
+
+    private static char[] buildTable() {
+        char[] table = new char[TABLE_SIZE];
+        for (int c = 0; c < TABLE_SIZE; c++) {
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                table[c] = DROP; // dau roi (input da o dang NFD)
+                continue;
+            }
+            String decomposed = Normalizer.normalize(String.valueOf((char) c), Normalizer.Form.NFD);
+            table[c] = Character.toLowerCase(decomposed.charAt(0));
+        }
+        table['đ'] = 'd';
+        table['Đ'] = 'd';
+        return table;
+    }
+
+    public static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            char f = c < TABLE_SIZE ? FOLD[c] : Character.toLowerCase(c);
+            if (f == DROP) continue;
+            if (Character.isWhitespace(f)) {
+                pendingSpace = sb.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                sb.append(' ');
+                pendingSpace = false;
+            }
+            sb.append(f);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,39 @@
+-- stock taken at checkout but not yet paid; released by OrderExpirySweeper when expires_at passes
+-- (VNPay payment URLs expire after 15 minutes), deleted without release once the order is paid / COD
+
+-- orders was only created by Hibernate (ddl-auto), after Flyway, so a fresh database could never get the
+-- foreign key below: create it here with the entity's columns (Order + embedded ShippingAddress).
+-- Hibernate adds the customer foreign key afterwards
+create table if not exists orders (
+    id bigint primary key,
+    order_code varchar(255),
+    order_date timestamp(6),
+    total_amount numeric(18,2),
+    payment_channel varchar(255),
+    status varchar(255),
+    payment_txn_id varchar(255),
+    full_name varchar(255),
+    phone varchar(255),
+    province varchar(255),
+    district varchar(255),
+    ward varchar(255),
+    address_line varchar(255),
+    note varchar(255),
+    country varchar(255),
+    customer_id bigint
+);
+
+create table if not exists inventory_hold (
+    id bigserial primary key,
+    order_id bigint not null
+        constraint fk_inventory_hold_order references orders(id) on delete cascade,
+    product_id bigint not null,
+    variant_id bigint,
+    quantity int not null check (quantity > 0),
+    expires_at timestamp not null,
+    created_at timestamp not null default now()
+);
+
+-- sweeper: WHERE expires_at <= now() ORDER BY expires_at LIMIT n
+create index if not exists idx_inventory_hold_expires on inventory_hold (expires_at);
+create index if not exists idx_inventory_hold_order on inventory_hold (order_id);
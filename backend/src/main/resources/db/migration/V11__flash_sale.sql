@@ -0,0 +1,10 @@
+-- flash sale SKUs: while starts_at <= now() < ends_at, each instance leases product_variant.stock in chunks of
+-- lease_size into in-memory counters (FlashSaleStock) and admits checkouts from there; unsold units are returned
+-- to product_variant.stock when the sale ends or the instance shuts down.
+-- no foreign key: product_variant is still created by Hibernate (ddl-auto), after Flyway on a fresh database
+create table if not exists flash_sale (
+    variant_id bigint primary key,
+    lease_size int not null default 20 check (lease_size > 0),
+    starts_at timestamp not null default now(),
+    ends_at timestamp not null
+);
@@ -0,0 +1,35 @@
+-- one cart_item row per (cart, product, variant); simple products (variant_id null) count as variant 0 so they
+-- are unique too. CartItemUpsert adds to a line with INSERT ... ON CONFLICT on this index.
+-- fresh database: cart_item was only created by Hibernate (ddl-auto), after Flyway, so create it here with the
+-- entity's columns and the index exists from the start; Hibernate adds the foreign keys afterwards
+do $$
+begin
+    if to_regclass('cart_item') is not null then
+        -- fold existing duplicates into the oldest row first
+        update cart_item c
+        set quantity = d.total
+        from (select min(id) as keep_id, sum(coalesce(quantity, 0)) as total
+              from cart_item
+              group by cart_id, product_id, coalesce(variant_id, 0)
+              having count(*) > 1) d
+        where c.id = d.keep_id;
+
+        delete from cart_item c
+        using cart_item k
+        where k.cart_id = c.cart_id
+          and k.product_id = c.product_id
+          and coalesce(k.variant_id, 0) = coalesce(c.variant_id, 0)
+          and k.id < c.id;
+    else
+        create table cart_item (
+            id bigint generated by default as identity primary key,
+            cart_id bigint not null,
+            product_id bigint not null,
+            variant_id bigint,
+            quantity integer
+        );
+    end if;
+
+    create unique index if not exists uq_cart_item_line
+        on cart_item (cart_id, product_id, (coalesce(variant_id, 0)));
+end $$;
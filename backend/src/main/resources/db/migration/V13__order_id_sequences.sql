@@ -0,0 +1,16 @@
+-- orders / order_item ids come from pooled sequences (allocationSize = 50) instead of IDENTITY,
+-- so Hibernate can batch checkout inserts. the old identity default stays; explicit ids are accepted.
+-- fresh database: orders is still empty (V10), its sequence starts at 1; Hibernate (ddl-auto) creates
+-- order_item and its sequence after Flyway
+do $$
+begin
+    if to_regclass('orders') is not null then
+        create sequence if not exists orders_seq start with 1 increment by 50;
+        -- pooled: nextval returns the top of the next block => first block starts right after max(id)
+        perform setval('orders_seq', (select coalesce(max(id), 0) + 1 from orders));
+    end if;
+    if to_regclass('order_item') is not null then
+        create sequence if not exists order_item_seq start with 1 increment by 50;
+        perform setval('order_item_seq', (select coalesce(max(id), 0) + 1 from order_item));
+    end if;
+end $$;
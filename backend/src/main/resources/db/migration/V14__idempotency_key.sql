@@ -0,0 +1,12 @@
+-- Idempotency-Key for POST /api/orders/checkout and /api/payments/cod/{orderCode} (IdempotencyService).
+-- the key row is inserted in the same transaction as the order: a concurrent retry blocks on the primary key
+-- until the first attempt commits (then replays response) or rolls back (then runs itself)
+create table if not exists idempotency_key (
+    key_hash bytea primary key,      -- sha256(scope + ':' + Idempotency-Key header)
+    request_hash bytea not null,     -- sha256(caller + request body): same key with another request => 422
+    response text,                   -- JSON of the first successful response
+    expires_at timestamp not null
+);
+
+-- hourly purge: DELETE ... WHERE expires_at < now()
+create index if not exists idx_idempotency_key_expires on idempotency_key (expires_at);
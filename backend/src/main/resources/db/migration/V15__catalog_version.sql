@@ -0,0 +1,10 @@
+-- shared catalog version for ETag / Last-Modified on public catalog GETs (CatalogVersion, CatalogConditionalGetFilter).
+-- bumped in the same transaction as the product write, so every instance derives the same validator
+-- (a per-instance counter gave each Cloud Run instance its own ETag and broke 304s behind a load balancer)
+create table if not exists catalog_version (
+    id smallint primary key check (id = 1),
+    version bigint not null,
+    updated_at timestamp not null default now()
+);
+
+insert into catalog_version (id, version) values (1, 1) on conflict do nothing;
@@ -0,0 +1,33 @@
+-- cart retention (CartPurgeJob) by activity instead of created_at: guest carts by last write (updated_at),
+-- checked-out carts by checkout time (checked_out_at). the cart indexes were only declared on the entity;
+-- they live here now (Cart keeps the same names so ddl-auto does not add copies).
+-- fresh database: create cart here with the entity's columns; Hibernate adds the customer foreign key later
+do $$
+begin
+    if to_regclass('cart') is not null then
+        alter table cart add column if not exists updated_at timestamp(6);
+        alter table cart add column if not exists checked_out_at timestamp(6);
+
+        -- existing rows: created_at is the best known value, the same age purge used until now
+        update cart set updated_at = created_at where updated_at is null;
+        update cart set checked_out_at = created_at where status = 'CHECKED_OUT' and checked_out_at is null;
+
+        -- replaced by the two purge indexes below
+        drop index if exists idx_cart_status_created;
+    else
+        create table cart (
+            id bigint generated by default as identity primary key,
+            customer_id bigint,
+            guest_id varchar(255),
+            created_at timestamp(6),
+            status varchar(255),
+            updated_at timestamp(6),
+            checked_out_at timestamp(6)
+        );
+    end if;
+
+    create index if not exists idx_cart_customer_status on cart (customer_id, status);
+    create index if not exists idx_cart_guest_status on cart (guest_id, status);
+    create index if not exists idx_cart_guest_activity on cart (customer_id, updated_at);
+    create index if not exists idx_cart_status_checked_out on cart (status, checked_out_at);
+end $$;
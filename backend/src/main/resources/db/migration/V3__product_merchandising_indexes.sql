@@ -0,0 +1,7 @@
+-- "pinned first, then newest" listings for /api/products/new-arrivals and /best-sellers
+-- (ORDER BY flag DESC, created_at DESC, id DESC is a backward scan of these)
+create index if not exists idx_product_new_arrival_created
+    on product (is_new_arrival, created_at, id);
+
+create index if not exists idx_product_best_seller_created
+    on product (is_best_seller, created_at, id);
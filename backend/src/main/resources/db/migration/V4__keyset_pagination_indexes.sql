@@ -0,0 +1,7 @@
+-- keyset pagination for /api/products/shop?cursor= and /api/search?cursor=
+-- each index matches an ORDER BY (sort column, id) so page N costs the same as page 1
+create index if not exists idx_product_created_id on product (created_at, id);
+create index if not exists idx_product_price_id on product (price, id);
+
+-- /api/search?category=...&cursor=
+create index if not exists idx_product_category_created_id on product (category, created_at, id);
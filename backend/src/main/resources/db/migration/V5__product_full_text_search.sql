@@ -0,0 +1,15 @@
+-- full-text search for /api/search (search.engine=fulltext)
+-- 'simple' config: no stemming/stop words, Postgres ships no Vietnamese dictionary
+create extension if not exists pg_trgm;
+
+alter table product
+    add column if not exists search_vector tsvector
+        generated always as (
+            setweight(to_tsvector('simple', coalesce(name, '')), 'A') ||
+            setweight(to_tsvector('simple', coalesce(description, '')), 'B')
+        ) stored;
+
+create index if not exists idx_product_search_vector on product using gin (search_vector);
+
+-- substring matches (LIKE '%kw%') that the tsvector prefix query can't answer
+create index if not exists idx_product_name_trgm on product using gin (lower(name) gin_trgm_ops);
@@ -0,0 +1,38 @@
+-- diacritic-insensitive search: "ao thun" matches "Áo thun"
+-- search_text = VietnameseNormalizer.normalize(name + ' ' + description), written by Product on insert/update.
+-- queries compare the normalized keyword against it, so no unaccent() per row.
+alter table product add column if not exists search_text text;
+
+-- one-off backfill for existing rows (same folding as the Java normalizer; the next save rewrites it anyway)
+update product
+set search_text = btrim(regexp_replace(lower(translate(
+        coalesce(name, '') || ' ' || coalesce(description, ''),
+        'áàảãạăắằẳẵặâấầẩẫậéèẻẽẹêếềểễệíìỉĩịóòỏõọôốồổỗộơớờởỡợúùủũụưứừửữựýỳỷỹỵđÁÀẢÃẠĂẮẰẲẴẶÂẤẦẨẪẬÉÈẺẼẸÊẾỀỂỄỆÍÌỈĨỊÓÒỎÕỌÔỐỒỔỖỘƠỚỜỞỠỢÚÙỦŨỤƯỨỪỬỮỰÝỲỶỸỴĐ',
+        'aaaaaaaaaaaaaaaaaeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyydaaaaaaaaaaaaaaaaaeeeeeeeeeeeiiiiiooooooooooooooooouuuuuuuuuuuyyyyyd'
+    )), '\s+', ' ', 'g'))
+where search_text is null;
+
+-- full-text config: 'simple' + unaccent dictionary, so "Áo" and "ao" both index as 'ao'.
+-- ts_headline parses the original name/description with it too: "ao" highlights "<mark>Áo</mark>"
+create extension if not exists unaccent;
+do $$
+begin
+    if not exists (select 1 from pg_ts_config where cfgname = 'vn_unaccent') then
+        create text search configuration vn_unaccent (copy = simple);
+        alter text search configuration vn_unaccent
+            alter mapping for hword, hword_part, word with unaccent, simple;
+    end if;
+end $$;
+
+-- rebuild the full-text column diacritic-insensitive, keeping V5's weights (name A ranks above description B)
+alter table product drop column if exists search_vector;
+alter table product
+    add column search_vector tsvector
+        generated always as (
+            setweight(to_tsvector('vn_unaccent', coalesce(name, '')), 'A') ||
+            setweight(to_tsvector('vn_unaccent', coalesce(description, '')), 'B')
+        ) stored;
+create index if not exists idx_product_search_vector on product using gin (search_vector);
+
+drop index if exists idx_product_name_trgm;
+create index if not exists idx_product_search_text_trgm on product using gin (search_text gin_trgm_ops);
@@ -0,0 +1,17 @@
+-- denormalized listing card: exactly what /api/products/cards renders, one row per product
+-- maintained in the product write transaction by ProductCardWriter (backfilled on startup)
+create table if not exists product_card (
+    product_id bigint primary key references product(id) on delete cascade,
+    name text,
+    category text,
+    main_image_url varchar(2048),
+    display_price numeric(18,2) not null,
+    in_stock boolean not null default false,
+    is_best_seller boolean not null default false,
+    is_new_arrival boolean not null default false,
+    created_at timestamp
+);
+
+-- listing pages: ORDER BY created_at desc, product_id desc (optionally per category) = one index scan
+create index if not exists idx_product_card_created on product_card (created_at desc, product_id desc);
+create index if not exists idx_product_card_category_created on product_card (category, created_at desc, product_id desc);
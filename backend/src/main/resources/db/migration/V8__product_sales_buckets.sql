@@ -0,0 +1,13 @@
+-- rolling sales counters: one row per (product, variant, day), incremented when an order is placed
+-- 7/30-day totals = sum over at most 30 buckets; buckets older than the longest window are pruned daily
+-- variant_id = 0 for simple products (no variant) so it can be part of the primary key
+create table if not exists product_sales_bucket (
+    product_id bigint not null references product(id) on delete cascade,
+    variant_id bigint not null default 0,
+    sale_date date not null,
+    units int not null default 0,
+    primary key (product_id, variant_id, sale_date)
+);
+
+-- best-seller ranking: WHERE sale_date >= :since GROUP BY product_id
+create index if not exists idx_product_sales_bucket_day on product_sales_bucket (sale_date, product_id);
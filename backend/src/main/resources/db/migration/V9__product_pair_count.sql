@@ -0,0 +1,22 @@
+-- "frequently bought together": how many completed (PAID) orders contained both products
+-- one row per unordered pair, product_a < product_b
+create table if not exists product_pair_count (
+    product_a bigint not null references product(id) on delete cascade,
+    product_b bigint not null references product(id) on delete cascade,
+    cnt int not null default 0,
+    primary key (product_a, product_b),
+    check (product_a < product_b)
+);
+
+-- lookups from the product_b side (the index loads both directions)
+create index if not exists idx_product_pair_count_b on product_pair_count (product_b);
+
+-- backfill/increment read the items of specific orders
+-- order_item is created by Hibernate (ddl-auto) after Flyway on a fresh database; the entity declares
+-- the same index for that case
+do $$
+begin
+    if to_regclass('order_item') is not null then
+        create index if not exists idx_order_item_order on order_item (order_id);
+    end if;
+end $$;
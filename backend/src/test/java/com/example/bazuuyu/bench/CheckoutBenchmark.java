@@ -0,0 +1,131 @@
+package com.example.bazuuyu.bench;
+
+import com.example.bazuuyu.dto.request.ShippingAddressRequest;
+import com.example.bazuuyu.entity.Cart;
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.inventory.FlashSaleStock;
+import com.example.bazuuyu.repository.CartItemUpsert;
+import com.example.bazuuyu.repository.CartRepository;
+import com.example.bazuuyu.repository.H2CartItemUpsert;
+import com.example.bazuuyu.repository.ProductRepository;
+import com.example.bazuuyu.security.GuestIdCookie;
+import com.example.bazuuyu.service.*;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * do tre 1 lan checkout (OrderService.placeOrderByCartId) theo so dong gio: 1, 10, 50.
+ * context Spring toi thieu (JPA + cac service checkout) tren H2 trong bo nho; gio duoc tao ngoai phan do.
+ * H2 khong co do tre mang nen chenh lech theo so dong con nho hon tren Postgres that (moi statement = 1 round-trip).
+ * chay: mvn test-compile, roi main() cua class nay voi classpath test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckoutBenchmark {
+
+    private static final int MAX_LINES = 50;
+
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan("com.example.bazuuyu.entity")
+    @EnableJpaRepositories("com.example.bazuuyu.repository")
+    @Import({OrderService.class, CartService.class, H2CartItemUpsert.class, GuestIdCookie.class,
+            InventoryService.class, InventoryHoldService.class, FlashSaleStock.class})
+    static class CheckoutContext {}
+
+    @Param({"1", "10", "50"})
+    public int lines;
+
+    private ConfigurableApplicationContext context;
+    private OrderService orderService;
+    private CartRepository cartRepository;
+    private CartItemUpsert cartItemUpsert;
+    private List<CartItemUpsert.Line> cartLines;
+    private ShippingAddressRequest shipping;
+    private Long cartId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CheckoutContext.class)
+                .web(WebApplicationType.NONE)
+                // profile h2test (src/test/resources) + tham so dong lenh: de len application.properties
+                .run("--spring.profiles.active=h2test",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--logging.level.root=WARN");
+        orderService = context.getBean(OrderService.class);
+        cartRepository = context.getBean(CartRepository.class);
+        cartItemUpsert = context.getBean(H2CartItemUpsert.class);
+        context.getBean(JdbcTemplate.class).execute("""
+                CREATE TABLE inventory_hold (
+                    id bigserial primary key, order_id bigint not null, product_id bigint not null,
+                    variant_id bigint, quantity int not null, expires_at timestamp not null,
+                    created_at timestamp not null default now())
+                """);
+
+        ProductRepository productRepository = context.getBean(ProductRepository.class);
+        List<Product> products = IntStream.range(0, MAX_LINES).mapToObj(i -> {
+            Product p = Product.builder().name("P" + i).price(BigDecimal.TEN).quantity(Integer.MAX_VALUE)
+                    .category(Category.BBQ).build();
+            return productRepository.save(p);
+        }).toList();
+        cartLines = products.subList(0, lines).stream()
+                .map(p -> new CartItemUpsert.Line(p.getId(), null, 1))
+                .toList();
+
+        shipping = new ShippingAddressRequest();
+        shipping.setFullName("Bench");
+        shipping.setPhone("0901234567");
+        shipping.setProvince("HCM");
+        shipping.setDistrict("1");
+        shipping.setWard("Ben Nghe");
+        shipping.setAddressLine("1 Le Loi");
+    }
+
+    // moi lan do 1 gio moi day du dong (checkout xoa dong gio)
+    @Setup(Level.Invocation)
+    public void fillCart() {
+        Cart cart = cartRepository.save(Cart.builder().guestId("bench").status("ACTIVE")
+                .createdAt(LocalDateTime.now()).build());
+        cartItemUpsert.addAll(cart.getId(), cartLines);
+        cartId = cart.getId();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long checkout() {
+        return orderService.placeOrderByCartId(cartId, shipping).getId();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CheckoutBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
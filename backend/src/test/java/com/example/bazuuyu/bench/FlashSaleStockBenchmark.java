@@ -0,0 +1,84 @@
+package com.example.bazuuyu.bench;
+
+import com.example.bazuuyu.inventory.FlashSaleStock;
+import com.zaxxer.hikari.HikariDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 8 thread cung tru 1 SKU: UPDATE co dieu kien moi don (duong DB hien tai) so voi FlashSaleStock.take
+ * (bo dem trong bo nho, thue ton kho theo lo tu DB). stripes=1 la 1 bo dem chung: cho thay phan loi cua viec chia stripe.
+ * DB la H2 trong bo nho nen con so duong DB con lac quan hon Postgres that.
+ * chay: mvn test-compile, roi main() cua class nay voi classpath test.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class FlashSaleStockBenchmark {
+
+    private static final String TAKE =
+            "UPDATE product_variant SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    @Param({"50"})
+    public int leaseSize;
+
+    // 0 = mac dinh cua FlashSaleStock (so CPU * 2)
+    @Param({"0", "1"})
+    public int stripes;
+
+    private HikariDataSource dataSource;
+    private JdbcTemplate jdbcTemplate;
+    private FlashSaleStock flashSaleStock;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl("jdbc:h2:mem:flashbench;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;LOCK_TIMEOUT=10000");
+        dataSource.setMaximumPoolSize(8);
+        jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE product_variant (id bigint primary key, product_id bigint, stock int not null)");
+        jdbcTemplate.execute("""
+                CREATE TABLE flash_sale (variant_id bigint primary key, lease_size int not null,
+                    starts_at timestamp not null default CURRENT_TIMESTAMP, ends_at timestamp not null)
+                """);
+        jdbcTemplate.update("INSERT INTO product_variant (id, product_id, stock) VALUES (1, 1, ?), (2, 1, ?)",
+                Integer.MAX_VALUE, Integer.MAX_VALUE);
+        jdbcTemplate.update("INSERT INTO flash_sale (variant_id, lease_size, ends_at) VALUES (2, ?, DATEADD('DAY', 1, CURRENT_TIMESTAMP))",
+                leaseSize);
+        // cung pool cho ca 2 duong; khong co transaction checkout nen take() khong dang ky tra lai khi rollback
+        flashSaleStock = new FlashSaleStock(dataSource, event -> { }, stripes);
+        flashSaleStock.refresh();
+        if (!flashSaleStock.isOnSale(2L)) throw new IllegalStateException("flash sale not active");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        flashSaleStock.shutdown();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public boolean dbConditionalUpdate() {
+        return jdbcTemplate.update(TAKE, 1, 1L, 1) == 1;
+    }
+
+    @Benchmark
+    public boolean flashSaleStockTake() {
+        return flashSaleStock.take(2L, 1) == FlashSaleStock.Result.TAKEN;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(FlashSaleStockBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.bazuuyu.bench;
+
+import com.example.bazuuyu.utils.VietnameseNormalizer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.text.Normalizer;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * VietnameseNormalizer (bang tra cuu) so voi cach thuong gap: NFD + regex bo dau.
+ * chay: mvn test-compile, roi main() cua class nay voi classpath test.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VietnameseNormalizerBenchmark {
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SPACES = Pattern.compile("\\s+");
+
+    @Param({
+            "áo thun",                                                   // keystroke query
+            "Áo Thun Nữ Cổ Tròn Đỏ Đô Phối Viền - Chất Liệu Cotton 100%", // product name
+            "Set lẩu nướng Hàn Quốc gồm bếp điện, khay nướng chống dính và bộ dụng cụ; "
+                    + "phù hợp cho gia đình 4–6 người, bảo hành 12 tháng chính hãng."  // description
+    })
+    public String input;
+
+    @Benchmark
+    public String tableLookup() {
+        return VietnameseNormalizer.normalize(input);
+    }
+
+    @Benchmark
+    public String nfdRegex() {
+        String s = Normalizer.normalize(input, Normalizer.Form.NFD);
+        s = MARKS.matcher(s).replaceAll("").replace('đ', 'd').replace('Đ', 'D');
+        return SPACES.matcher(s.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(VietnameseNormalizerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.bazuuyu.catalog.card;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.entity.ProductCard;
+import com.example.bazuuyu.entity.ProductImage;
+import com.example.bazuuyu.entity.ProductVariant;
+import com.example.bazuuyu.repository.ProductCardRepository;
+import com.example.bazuuyu.repository.ProductRepository;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * product_card phai theo kip product/variant sau moi lan ghi (H2, schema tao tu entity).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+class ProductCardWriterTest {
+
+    @Autowired ProductRepository productRepository;
+    @Autowired ProductCardRepository cardRepository;
+    @Autowired EntityManager em;
+
+    ProductCardWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        writer = new ProductCardWriter(productRepository, cardRepository);
+    }
+
+    @Test
+    void refreshFollowsVariantAndProductChanges() {
+        Product p = Product.builder()
+                .name("Bep lau")
+                .price(BigDecimal.valueOf(900_000))
+                .category(Category.BBQ)
+                .build();
+        p.addImage(ProductImage.builder().imageUrl("bep.jpg").build());
+        ProductVariant small = ProductVariant.builder().name("S").sku("BL-S")
+                .price(BigDecimal.valueOf(400_000)).stock(0).build();
+        p.addVariant(small);
+        em.persist(p);
+
+        writer.refresh(p.getId());
+        ProductCard card = cardRepository.findById(p.getId()).orElseThrow();
+        assertEquals(0, BigDecimal.valueOf(400_000).compareTo(card.getDisplayPrice()));
+        assertFalse(card.isInStock());
+        assertEquals("bep.jpg", card.getMainImageUrl());
+
+        // doi variant + ten trong cung "transaction": refresh phai thay thay doi chua flush
+        small.setStock(5);
+        small.setPrice(BigDecimal.valueOf(350_000));
+        p.setName("Bep lau 2 ngan");
+        writer.refresh(p.getId());
+        em.flush();
+        em.clear();
+
+        card = cardRepository.findById(p.getId()).orElseThrow();
+        assertEquals("Bep lau 2 ngan", card.getName());
+        assertEquals(0, BigDecimal.valueOf(350_000).compareTo(card.getDisplayPrice()));
+        assertTrue(card.isInStock());
+        assertEquals(1, cardRepository.findPageByCategory(Category.BBQ, PageRequest.of(0, 24)).getTotalElements());
+    }
+
+    @Test
+    void refreshRemovesCardOfDeletedProduct() {
+        Product p = Product.builder().name("Xien").price(BigDecimal.TEN).category(Category.BBQ).build();
+        em.persist(p);
+        writer.refresh(p.getId());
+        assertTrue(cardRepository.existsById(p.getId()));
+
+        em.remove(p); // schema H2 tao tu entity: khong co FK/ON DELETE CASCADE nhu V7
+        em.flush();
+        writer.refresh(p.getId());
+        assertFalse(cardRepository.existsById(p.getId()));
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.bazuuyu.catalog.related;
+
+import com.example.bazuuyu.controller.ProductController;
+import com.example.bazuuyu.dto.response.ProductCardResponse;
+import com.example.bazuuyu.entity.*;
+import com.example.bazuuyu.order.events.OrderCompletedEvent;
+import com.example.bazuuyu.repository.*;
+import com.example.bazuuyu.service.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * "mua cung": moi cap san pham trong 1 don PAID +1 (lap dong trong don chi tinh 1 lan), top-K theo so don,
+ * bo san pham het hang; don moi hoan tat cap nhat xep hang o lan check ke tiep. /related cat limit theo top-K.
+ */
+@DataJpaTest
+@Import({RelatedProductsIndex.class, H2ProductPairCountUpsert.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "related.top-k=2")
+class RelatedProductsIndexTest {
+
+    @Autowired RelatedProductsIndex index;
+    @Autowired ProductRepository productRepository;
+    @Autowired ProductCardRepository productCardRepository;
+    @Autowired ProductPairCountRepository pairRepository;
+    @Autowired OrderRepository orderRepository;
+
+    private Product a, b, c, d, soldOut;
+
+    @BeforeEach
+    void setUp() {
+        a = product("Bep nuong", true);
+        b = product("Vi nuong", true);
+        c = product("Than hoa", true);
+        d = product("Kep gap", true);
+        soldOut = product("Noi lau", false);
+
+        complete(a, b, c);
+        complete(a, b);
+        complete(a, c, soldOut);
+        complete(a, d, a); // dong lap: van 1 don
+        index.rebuild();
+    }
+
+    @Test
+    void countsEachPairOncePerOrder() {
+        assertEquals(2, count(a, b));
+        assertEquals(2, count(a, c));
+        assertEquals(1, count(a, d));
+        assertEquals(1, count(b, c));
+        assertEquals(1, count(c, soldOut));
+        assertEquals(6, pairRepository.count());
+    }
+
+    @Test
+    void relatedIsTopKByOrdersAndSkipsOutOfStock() {
+        assertEquals(List.of(b.getId(), c.getId()), ids(index.relatedTo(a.getId(), 10))); // d: ngoai top-2
+        assertEquals(List.of(a.getId(), b.getId()), ids(index.relatedTo(c.getId(), 10))); // noi lau het hang
+        assertEquals(List.of(b.getId()), ids(index.relatedTo(a.getId(), 1)));
+        assertEquals(List.of(), index.relatedTo(-1L, 10));
+
+        ProductCardResponse card = index.relatedTo(a.getId(), 1).get(0);
+        assertEquals("Vi nuong", card.getName());
+        assertTrue(card.isInStock());
+    }
+
+    @Test
+    void completedOrderReranksOnNextCheck() {
+        complete(c, d);
+        complete(c, d);
+
+        // chua doi cho den chu ky check
+        assertEquals(List.of(a.getId(), b.getId()), ids(index.relatedTo(c.getId(), 10)));
+        index.refreshIfNeeded();
+        assertEquals(List.of(a.getId(), d.getId()), ids(index.relatedTo(c.getId(), 10)));
+    }
+
+    @Test
+    void relatedEndpointClampsLimitToTopK() throws Exception {
+        MockMvc mvc = MockMvcBuilders
+                .standaloneSetup(new ProductController(mock(ProductService.class), index))
+                .build();
+
+        mvc.perform(get("/api/products/{id}/related", a.getId()).param("limit", "50"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].id").value(b.getId()));
+        mvc.perform(get("/api/products/{id}/related", a.getId()).param("limit", "0"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    private Product product(String name, boolean inStock) {
+        Product p = productRepository.save(Product.builder().name(name).price(BigDecimal.TEN)
+                .category(Category.BBQ).build());
+        productCardRepository.save(ProductCard.builder().productId(p.getId()).name(name).category(Category.BBQ)
+                .displayPrice(BigDecimal.TEN).inStock(inStock).build());
+        return p;
+    }
+
+    // don PAID + event nhu OrderService luc thanh toan
+    private void complete(Product... lines) {
+        Order order = Order.builder().orderCode("O-" + System.nanoTime()).orderDate(LocalDateTime.now())
+                .totalAmount(BigDecimal.TEN).status(Order.OrderStatus.PAID).items(new ArrayList<>()).build();
+        for (Product p : lines) {
+            order.getItems().add(OrderItem.builder().order(order).product(p).quantity(1).price(BigDecimal.TEN).build());
+        }
+        orderRepository.saveAndFlush(order);
+        OrderCompletedEvent event = new OrderCompletedEvent(order.getId());
+        index.on(event);
+        index.afterOrderCompleted(event);
+    }
+
+    private int count(Product x, Product y) {
+        return pairRepository.findById(new ProductPairCount.Key(x.getId(), y.getId()))
+                .map(ProductPairCount::getCnt).orElse(0);
+    }
+
+    private static List<Long> ids(List<ProductCardResponse> cards) {
+        return cards.stream().map(ProductCardResponse::getId).toList();
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.bazuuyu.catalog.search;
+
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import com.example.bazuuyu.dto.response.SuggestionResponse;
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.repository.ProductRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * typeahead: khop theo dau tu (khong dau), best seller len truoc, category khop theo tu.
+ * sua/them/xoa 1 san pham va vao snapshot tai cho; so key phai bang mot lan build lai tu dau.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+class ProductSuggestIndexTest {
+
+    @Autowired ProductRepository productRepository;
+
+    private SimpleMeterRegistry registry;
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        index = new ProductSuggestIndex(productRepository, registry);
+    }
+
+    @Test
+    void matchesAnyWordPrefixWithoutDiacritics() {
+        Product lau = save("Bếp lẩu BBQ", false);
+        Product ao = save("Áo thun nữ", false);
+        index.load();
+
+        assertEquals(List.of(lau.getId()), ids(index.suggest("lau", 5)));
+        assertEquals(List.of(lau.getId()), ids(index.suggest("Lẩu", 5)));
+        assertEquals(List.of(ao.getId()), ids(index.suggest("thun n", 5)));
+        assertEquals(List.of(), ids(index.suggest("hun", 5))); // giua tu: khong khop
+    }
+
+    @Test
+    void bestSellerRanksFirstAndCategoriesMatchByWord() {
+        Product plain = save("Bò nướng", false);
+        Product best = save("Bò nướng sa tế", true);
+        index.load();
+
+        assertEquals(List.of(best.getId(), plain.getId()), ids(index.suggest("bo", 5)));
+        assertEquals(List.of(best.getId()), ids(index.suggest("bo", 1)));
+        assertTrue(index.suggest("bb", 5).getCategories().contains(Category.BBQ));
+        assertTrue(index.suggest("kou", 5).getCategories().contains(Category.XIAO_KOU));
+    }
+
+    @Test
+    void singleProductChangesPatchSnapshotInPlace() {
+        Product lau = save("Bếp lẩu BBQ", false);
+        save("Áo thun", false);
+        index.load();
+
+        // doi ten: key cu bien mat, key moi khop
+        lau.setName("Nồi lẩu Thái");
+        productRepository.saveAndFlush(lau);
+        index.on(new ProductChangedEvent(lau.getId()));
+        assertEquals(List.of(), ids(index.suggest("bep", 5)));
+        assertEquals(List.of(lau.getId()), ids(index.suggest("thai", 5)));
+
+        // them moi
+        Product added = save("Lẩu nấm", true);
+        index.on(new ProductChangedEvent(added.getId()));
+        assertEquals(List.of(added.getId(), lau.getId()), ids(index.suggest("lau", 5)));
+
+        // xoa
+        productRepository.delete(lau);
+        productRepository.flush();
+        index.on(new ProductChangedEvent(lau.getId()));
+        assertEquals(List.of(added.getId()), ids(index.suggest("lau", 5)));
+        assertEquals(List.of(), ids(index.suggest("noi", 5)));
+
+        // snapshot va tai cho = build lai tu dau
+        double patchedKeys = keys();
+        assertEquals(3, registry.get("search.suggest.update").timer().count());
+        index.load();
+        assertEquals(keys(), patchedKeys);
+    }
+
+    @Test
+    void unknownProductDeleteIsNoOp() {
+        save("Áo thun", false);
+        index.load();
+        double before = keys();
+
+        index.on(new ProductChangedEvent(-1L));
+
+        assertEquals(before, keys());
+        assertEquals(1, ids(index.suggest("ao", 5)).size());
+    }
+
+    private Product save(String name, boolean bestSeller) {
+        return productRepository.saveAndFlush(Product.builder().name(name).price(BigDecimal.TEN)
+                .category(Category.BBQ).isBestSeller(bestSeller).build());
+    }
+
+    private double keys() {
+        return registry.get("search.suggest.keys").gauge().value();
+    }
+
+    private static List<Long> ids(SuggestionResponse r) {
+        return r.getProducts().stream().map(SuggestionResponse.Item::getId).toList();
+    }
+}
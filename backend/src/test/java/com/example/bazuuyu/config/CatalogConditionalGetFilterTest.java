@@ -0,0 +1,166 @@
+package com.example.bazuuyu.config;
+
+import com.example.bazuuyu.catalog.CatalogVersion;
+import com.example.bazuuyu.catalog.events.ProductChangedEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * header cache cua API: 304 khong goi controller, ETag catalog giong nhau giua cac instance (catalog_version chung),
+ * chi tiet san pham private/no-cache theo noi dung, loi va cart/order luon no-store, khong ETag.
+ */
+class CatalogConditionalGetFilterTest {
+
+    @RestController
+    static class StubController {
+        final AtomicInteger listCalls = new AtomicInteger();
+        volatile int stock = 5;
+
+        @GetMapping("/api/products")
+        Map<String, Object> list() {
+            listCalls.incrementAndGet();
+            return Map.of("items", 1);
+        }
+
+        @GetMapping("/api/products/{id}")
+        ResponseEntity<Map<String, Object>> detail(@PathVariable long id) {
+            if (id == 404) return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", "not found"));
+            return ResponseEntity.ok(Map.of("id", id, "quantity", stock));
+        }
+
+        @GetMapping("/api/search/broken")
+        Map<String, Object> broken() {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        @GetMapping({"/api/cart", "/api/orders/{code}"})
+        Map<String, Object> privateData() {
+            return Map.of("items", 0);
+        }
+    }
+
+    private JdbcTemplate jdbcTemplate;
+    private CatalogVersion version;
+    private StubController controller;
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new JdbcTemplate(new DriverManagerDataSource(
+                "jdbc:h2:mem:catalogversion;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1"));
+        jdbcTemplate.execute("DROP TABLE IF EXISTS catalog_version");
+        jdbcTemplate.execute("""
+                CREATE TABLE catalog_version (
+                    id smallint primary key, version bigint not null, updated_at timestamp not null default now())
+                """);
+        jdbcTemplate.update("INSERT INTO catalog_version (id, version) VALUES (1, 1)");
+        version = new CatalogVersion(jdbcTemplate);
+        version.refresh();
+        controller = new StubController();
+        mvc = mvcFor(version);
+    }
+
+    private MockMvc mvcFor(CatalogVersion v) {
+        return MockMvcBuilders.standaloneSetup(controller)
+                .addFilters(new NoStoreCacheFilter(), new CatalogConditionalGetFilter(v, 60, 300, 86400))
+                .build();
+    }
+
+    @Test
+    void matchingEtagReturns304WithoutCallingController() throws Exception {
+        String etag = mvc.perform(get("/api/products"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "public, max-age=60, stale-while-revalidate=300"))
+                .andReturn().getResponse().getHeader("ETag");
+        assertEquals("W/\"c-1\"", etag);
+
+        mvc.perform(get("/api/products").header("If-None-Match", etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", etag));
+        assertEquals(1, controller.listCalls.get());
+    }
+
+    @Test
+    void etagComesFromSharedVersionOnEveryInstance() throws Exception {
+        CatalogVersion otherInstance = new CatalogVersion(jdbcTemplate);
+        otherInstance.refresh();
+
+        version.bump(new ProductChangedEvent(42L)); // ghi tren instance nay
+        version.refresh();
+        otherInstance.refresh(); // instance kia: nhan NOTIFY hoac chu ky doc lai
+
+        String here = mvc.perform(get("/api/products")).andReturn().getResponse().getHeader("ETag");
+        String there = mvcFor(otherInstance).perform(get("/api/products")).andReturn().getResponse().getHeader("ETag");
+        assertEquals("W/\"c-2\"", here);
+        assertEquals(here, there);
+
+        // event remote: instance gui da tang, khong tang lan nua
+        otherInstance.bump(new ProductChangedEvent(42L, true));
+        otherInstance.refresh();
+        assertEquals(2, otherInstance.current());
+    }
+
+    @Test
+    void productDetailIsPrivateAndRevalidatedAgainstCurrentStock() throws Exception {
+        MvcResult first = mvc.perform(get("/api/products/7"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Cache-Control", "private, no-cache"))
+                .andReturn();
+        String etag = first.getResponse().getHeader("ETag");
+        assertNotNull(etag);
+
+        mvc.perform(get("/api/products/7").header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        // ton kho doi ma catalog version khong doi => tra body moi
+        controller.stock = 4;
+        MvcResult changed = mvc.perform(get("/api/products/7").header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertNotEquals(etag, changed.getResponse().getHeader("ETag"));
+        assertTrue(changed.getResponse().getContentAsString().contains("\"quantity\":4"));
+    }
+
+    @Test
+    void errorResponsesAreNoStoreWithoutEtag() throws Exception {
+        mvc.perform(get("/api/products/404"))
+                .andExpect(status().isNotFound())
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(header().doesNotExist("Last-Modified"));
+
+        mvc.perform(get("/api/search/broken"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(header().string("Cache-Control", "no-store"))
+                .andExpect(header().doesNotExist("ETag"));
+    }
+
+    @Test
+    void cartAndOrdersAreNoStore() throws Exception {
+        for (String uri : new String[]{"/api/cart", "/api/orders/ORD-1"}) {
+            mvc.perform(get(uri).header("If-None-Match", "*"))
+                    .andExpect(status().isOk())
+                    .andExpect(header().string("Cache-Control", "no-store, no-cache, max-age=0, must-revalidate"))
+                    .andExpect(header().doesNotExist("ETag"));
+        }
+    }
+}
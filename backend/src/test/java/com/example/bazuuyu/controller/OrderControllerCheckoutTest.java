@@ -0,0 +1,79 @@
+package com.example.bazuuyu.controller;
+
+import com.example.bazuuyu.entity.Cart;
+import com.example.bazuuyu.entity.Order;
+import com.example.bazuuyu.security.JwtUtils;
+import com.example.bazuuyu.service.CartService;
+import com.example.bazuuyu.service.CustomerService;
+import com.example.bazuuyu.service.IdempotencyService;
+import com.example.bazuuyu.service.OrderService;
+import io.jsonwebtoken.MalformedJwtException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * checkout: nguoi goi (JWT) chi doc khi co Idempotency-Key; token sai/het han => 400, khong phai 500.
+ */
+class OrderControllerCheckoutTest {
+
+    private static final String SHIPPING = """
+            {"fullName":"A B","phone":"0901234567","province":"HCM","district":"1",
+             "ward":"Ben Nghe","addressLine":"1 Le Loi"}
+            """;
+
+    private final CartService cartService = mock(CartService.class);
+    private final OrderService orderService = mock(OrderService.class);
+    private final JwtUtils jwtUtils = mock(JwtUtils.class);
+    private final IdempotencyService idempotencyService = mock(IdempotencyService.class);
+    private MockMvc mvc;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        // nhu IdempotencyService khi chua co key: chay thang action
+        when(idempotencyService.execute(anyString(), any(), any(), any(), any()))
+                .thenAnswer(inv -> new IdempotencyService.Result<>(((Supplier<Object>) inv.getArgument(4)).get(), false));
+        when(jwtUtils.getUsernameFromToken(anyString())).thenThrow(new MalformedJwtException("bad token"));
+        mvc = MockMvcBuilders.standaloneSetup(new OrderController(cartService, orderService,
+                mock(CustomerService.class), jwtUtils, idempotencyService)).build();
+    }
+
+    @Test
+    void checkoutWithoutKeyDoesNotResolveCaller() throws Exception {
+        Cart cart = Cart.builder().id(7L).build();
+        when(cartService.findActiveCartForRequest(any(), any(), any())).thenReturn(Optional.of(cart));
+        when(orderService.placeOrderByCartId(eq(7L), any())).thenReturn(Order.builder().id(1L)
+                .orderCode("ORD-1").totalAmount(BigDecimal.TEN).status(Order.OrderStatus.CREATED).build());
+
+        mvc.perform(post("/api/orders/checkout").header("Authorization", "Bearer x")
+                        .contentType(MediaType.APPLICATION_JSON).content(SHIPPING))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.orderCode").value("ORD-1"));
+
+        verify(jwtUtils, never()).getUsernameFromToken(anyString());
+        verify(idempotencyService).execute(eq("checkout"), isNull(), isNull(), any(), any());
+    }
+
+    @Test
+    void badTokenWithKeyIsBadRequest() throws Exception {
+        mvc.perform(post("/api/orders/checkout").header("Authorization", "Bearer x")
+                        .header(IdempotencyService.KEY_HEADER, "k1")
+                        .contentType(MediaType.APPLICATION_JSON).content(SHIPPING))
+                .andExpect(status().isBadRequest());
+
+        verifyNoInteractions(idempotencyService, orderService);
+    }
+}
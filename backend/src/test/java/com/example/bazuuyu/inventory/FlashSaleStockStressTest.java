@@ -0,0 +1,115 @@
+package com.example.bazuuyu.inventory;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.entity.ProductVariant;
+import com.example.bazuuyu.exception.InsufficientStockException;
+import com.example.bazuuyu.repository.ProductRepository;
+import com.example.bazuuyu.service.InventoryService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * flash sale: nhieu thread checkout cung 1 SKU qua bo dem trong bo nho. khong ban vuot, checkout rollback
+ * tra hang lai bo dem, ket thuc dot sale tra phan chua ban ve product_variant.stock.
+ */
+@DataJpaTest
+@Import({InventoryService.class, FlashSaleStock.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=16")
+class FlashSaleStockStressTest {
+
+    private static final int STOCK = 50;
+    private static final int SIMPLE_STOCK = 30; // dong thu 2 het truoc => cac checkout sau rollback
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+
+    @Autowired InventoryService inventoryService;
+    @Autowired FlashSaleStock flashSaleStock;
+    @Autowired ProductRepository productRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    void flashSaleNeverOversellsAndReconcilesAtEnd() throws Exception {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS flash_sale (
+                    variant_id bigint primary key,
+                    lease_size int not null default 20,
+                    starts_at timestamp not null default now(),
+                    ends_at timestamp not null)
+                """);
+        Product p = Product.builder().name("Drop").price(BigDecimal.TEN).quantity(SIMPLE_STOCK)
+                .category(Category.BBQ).build();
+        p.addVariant(ProductVariant.builder().name("One").sku("FLASH-1")
+                .price(BigDecimal.TEN).stock(STOCK).build());
+        p = productRepository.save(p);
+        Long productId = p.getId();
+        Long variantId = p.getVariants().get(0).getId();
+
+        flashSaleStock.start(variantId, 7, LocalDateTime.now().plusHours(1));
+        assertTrue(flashSaleStock.isOnSale(variantId));
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        tx.executeWithoutResult(s -> inventoryService.reserve(List.of(
+                                new InventoryService.StockLine(productId, variantId, 1),
+                                new InventoryService.StockLine(productId, null, 1))));
+                        accepted.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        assertEquals(SIMPLE_STOCK, accepted.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - SIMPLE_STOCK, rejected.get());
+        // trong dot sale DB chi thay phan chua cho thue
+        assertTrue(variantStock(variantId) <= STOCK - SIMPLE_STOCK);
+
+        flashSaleStock.end(variantId);
+
+        assertFalse(flashSaleStock.isOnSale(variantId));
+        assertEquals(STOCK - SIMPLE_STOCK, variantStock(variantId));
+    }
+
+    private int variantStock(Long variantId) {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product_variant WHERE id = ?", Integer.class, variantId);
+    }
+}
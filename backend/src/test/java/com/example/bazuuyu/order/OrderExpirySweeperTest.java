@@ -0,0 +1,315 @@
+package com.example.bazuuyu.order;
+
+import com.example.bazuuyu.dto.request.ShippingAddressRequest;
+import com.example.bazuuyu.entity.*;
+import com.example.bazuuyu.exception.InvalidOrderStateException;
+import com.example.bazuuyu.inventory.FlashSaleStock;
+import com.example.bazuuyu.repository.*;
+import com.example.bazuuyu.security.GuestIdCookie;
+import com.example.bazuuyu.service.*;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * vong doi hold: sweeper chuyen don qua han sang EXPIRED va tra hang, bo qua don dang bi khoa (SKIP LOCKED);
+ * bat dau thanh toan sau/trong luc sweep khong ghi de EXPIRED; extendForPayment khong rut ngan hold; COD chi tu don chua thanh toan, don EXPIRED thi lay lai hang.
+ * moi buoc la 1 transaction that (test khong boc transaction). inventory_hold do Flyway tao nen test tu tao bang.
+ */
+@DataJpaTest
+@Import({OrderExpirySweeper.class, OrderService.class, CartService.class, H2CartItemUpsert.class, GuestIdCookie.class,
+        InventoryService.class, InventoryHoldService.class, FlashSaleStock.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = {"inventory.hold.sweep-batch=2", "inventory.hold.payment-ttl=PT17M"})
+class OrderExpirySweeperTest {
+
+    @Autowired OrderExpirySweeper sweeper;
+    @Autowired OrderService orderService;
+    @Autowired InventoryHoldService holdService;
+    @Autowired ProductRepository productRepository;
+    @Autowired OrderRepository orderRepository;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    private Product plain;
+    private Product withVariant;
+    private ProductVariant variant;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS inventory_hold (
+                    id bigserial primary key, order_id bigint not null, product_id bigint not null,
+                    variant_id bigint, quantity int not null, expires_at timestamp not null,
+                    created_at timestamp not null default now())
+                """);
+        jdbcTemplate.update("DELETE FROM inventory_hold");
+        plain = productRepository.save(Product.builder().name("Than").price(BigDecimal.TEN).quantity(10)
+                .category(Category.BBQ).build());
+        Product p = Product.builder().name("Bep").price(BigDecimal.TEN).category(Category.BBQ).build();
+        p.addVariant(ProductVariant.builder().name("S").sku("BEP-S-" + System.nanoTime())
+                .price(BigDecimal.TEN).stock(5).build());
+        withVariant = productRepository.save(p);
+        variant = withVariant.getVariants().get(0);
+    }
+
+    @Test
+    void sweepExpiresDueOrdersAndReturnsStock() {
+        Order due = checkout(2, 1);
+        Order notDue = checkout(1, 0);
+        Order paid = checkout(1, 1);
+        expireHold(due);
+        expireHold(paid);
+        setStatus(paid, Order.OrderStatus.PAID); // hold sot lai cua don da tra: chi xoa, khong tra hang
+        assertEquals(10 - 4, plainStock());
+        assertEquals(5 - 2, variantStock());
+
+        sweeper.sweep();
+
+        assertEquals(Order.OrderStatus.EXPIRED, status(due));
+        assertEquals(Order.OrderStatus.CREATED, status(notDue));
+        assertEquals(Order.OrderStatus.PAID, status(paid));
+        assertEquals(10 - 4 + 2, plainStock());
+        assertEquals(5 - 2 + 1, variantStock());
+        assertEquals(0, holds(due));
+        assertEquals(0, holds(paid));
+        assertEquals(1, holds(notDue));
+
+        sweeper.sweep(); // khong tra hang lan 2
+        assertEquals(8, plainStock());
+    }
+
+    @Test
+    void sweepRunsMoreBatchesUntilDrained() {
+        for (int i = 0; i < 5; i++) expireHold(checkout(1, 0)); // batch = 2
+
+        sweeper.sweep();
+
+        assertEquals(10, plainStock());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM inventory_hold", Integer.class));
+    }
+
+    @Test
+    void sweepSkipsOrderLockedByPayment() throws Exception {
+        Order locked = checkout(1, 0);
+        Order free = checkout(2, 0);
+        expireHold(locked);
+        expireHold(free);
+
+        CountDownLatch lockHeld = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newSingleThreadExecutor();
+        try {
+            // nhu markPaidByVnpay: khoa dong don trong transaction dang chay
+            Future<?> payment = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+                orderRepository.findByOrderCodeForUpdate(locked.getOrderCode()).orElseThrow();
+                lockHeld.countDown();
+                await(release);
+            }));
+            assertTrue(lockHeld.await(5, TimeUnit.SECONDS));
+
+            CompletableFuture.runAsync(sweeper::sweep).get(5, TimeUnit.SECONDS); // khong bi chan
+
+            assertEquals(Order.OrderStatus.CREATED, status(locked));
+            assertEquals(1, holds(locked));
+            assertEquals(Order.OrderStatus.EXPIRED, status(free));
+            assertEquals(10 - 1, plainStock());
+
+            release.countDown();
+            payment.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+        sweeper.sweep();
+        assertEquals(Order.OrderStatus.EXPIRED, status(locked));
+        assertEquals(10, plainStock());
+    }
+
+    @Test
+    void paymentStartedAfterSweepKeepsOrderExpiredAndTakesStockAgain() {
+        Order order = checkout(3, 1);
+        expireHold(order);
+        sweeper.sweep(); // da tra hang, co the da ban cho nguoi khac
+        assertEquals(10, plainStock());
+
+        orderService.markAwaitingPayment(order.getOrderCode(), Order.PaymentChannel.VNPAY_DOMESTIC);
+
+        assertEquals(Order.OrderStatus.EXPIRED, status(order)); // khong ghi de bang ban cu CREATED
+        assertEquals(0, holds(order));
+        assertEquals(10, plainStock());
+
+        // tien ve sau do: nhanh EXPIRED lay lai hang thay vi convert() hold da mat
+        orderService.markPaidByVnpay(order.getOrderCode(), "TXN-1");
+        assertEquals(Order.OrderStatus.PAID, status(order));
+        assertEquals(10 - 3, plainStock());
+        assertEquals(5 - 1, variantStock());
+    }
+
+    @Test
+    void paymentWaitsForSweepInProgressAndSeesExpired() throws Exception {
+        Order order = checkout(2, 0);
+        CountDownLatch swept = new CountDownLatch(1);
+        CountDownLatch commit = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            // nhu 1 lo cua expireDue: dong don da khoa, EXPIRED + tra hang + xoa hold, chua commit
+            Future<?> sweep = pool.submit(() -> new TransactionTemplate(transactionManager).executeWithoutResult(s -> {
+                orderRepository.findByOrderCodeForUpdate(order.getOrderCode()).orElseThrow();
+                jdbcTemplate.update("UPDATE orders SET status = 'EXPIRED' WHERE id = ?", order.getId());
+                jdbcTemplate.update("UPDATE product SET quantity = quantity + 2 WHERE id = ?", plain.getId());
+                jdbcTemplate.update("DELETE FROM inventory_hold WHERE order_id = ?", order.getId());
+                swept.countDown();
+                await(commit);
+            }));
+            assertTrue(swept.await(5, TimeUnit.SECONDS));
+
+            Future<?> payment = pool.submit(() ->
+                    orderService.markAwaitingPayment(order.getOrderCode(), Order.PaymentChannel.VNPAY_DOMESTIC));
+            Thread.sleep(200); // payment dang cho khoa dong don
+            commit.countDown();
+            sweep.get(5, TimeUnit.SECONDS);
+            payment.get(15, TimeUnit.SECONDS);
+        } finally {
+            commit.countDown();
+            pool.shutdownNow();
+        }
+
+        assertEquals(Order.OrderStatus.EXPIRED, status(order));
+        assertEquals(10, plainStock());
+    }
+
+    @Test
+    void extendForPaymentNeverShortensHold() {
+        Order longHold = checkout(1, 0);
+        Order shortHold = checkout(1, 0);
+        LocalDateTime later = LocalDateTime.now().plusHours(1).withNano(0);
+        setHoldExpiry(longHold, later);
+        setHoldExpiry(shortHold, LocalDateTime.now().plusMinutes(1));
+
+        holdService.extendForPayment(longHold.getId());
+        holdService.extendForPayment(shortHold.getId());
+
+        assertEquals(Timestamp.valueOf(later), holdExpiry(longHold));
+        Duration left = Duration.between(LocalDateTime.now(), holdExpiry(shortHold).toLocalDateTime());
+        assertTrue(left.compareTo(Duration.ofMinutes(16)) > 0, "extended to payment ttl, left " + left);
+    }
+
+    @Test
+    void codAfterExpiryReservesStockAgain() {
+        Order order = checkout(3, 1);
+        expireHold(order);
+        sweeper.sweep();
+        assertEquals(10, plainStock());
+
+        orderService.markCodPending(order.getOrderCode());
+
+        assertEquals(Order.OrderStatus.COD_PENDING, status(order));
+        assertEquals(10 - 3, plainStock());
+        assertEquals(5 - 1, variantStock());
+        assertEquals(0, holds(order));
+    }
+
+    @Test
+    void codRejectedOncePaidCanceledOrAlreadyCod() {
+        Order fresh = checkout(1, 0);
+        orderService.markCodPending(fresh.getOrderCode()); // CREATED: COD ngay sau checkout
+        assertEquals(Order.OrderStatus.COD_PENDING, status(fresh));
+        assertThrows(InvalidOrderStateException.class, () -> orderService.markCodPending(fresh.getOrderCode()));
+
+        for (Order.OrderStatus s : new Order.OrderStatus[]{Order.OrderStatus.PAID, Order.OrderStatus.CANCELED}) {
+            Order order = checkout(1, 0);
+            setStatus(order, s);
+            assertThrows(InvalidOrderStateException.class, () -> orderService.markCodPending(order.getOrderCode()));
+            assertEquals(s, status(order));
+            assertEquals(1, holds(order)); // hold khong bi dung lai
+        }
+    }
+
+    private Order checkout(int plainQty, int variantQty) {
+        Cart cart = cartRepository.save(Cart.builder().guestId("g").status("ACTIVE")
+                .createdAt(LocalDateTime.now()).build());
+        cartItemRepository.save(CartItem.builder().cart(cart).product(plain).quantity(plainQty).build());
+        if (variantQty > 0) {
+            cartItemRepository.save(CartItem.builder().cart(cart).product(withVariant).variant(variant)
+                    .quantity(variantQty).build());
+        }
+        return orderService.placeOrderByCartId(cart.getId(), shipping());
+    }
+
+    private void expireHold(Order o) {
+        setHoldExpiry(o, LocalDateTime.now().minusMinutes(1));
+    }
+
+    private void setHoldExpiry(Order o, LocalDateTime at) {
+        jdbcTemplate.update("UPDATE inventory_hold SET expires_at = ? WHERE order_id = ?", Timestamp.valueOf(at), o.getId());
+    }
+
+    private Timestamp holdExpiry(Order o) {
+        return jdbcTemplate.queryForObject("SELECT max(expires_at) FROM inventory_hold WHERE order_id = ?",
+                Timestamp.class, o.getId());
+    }
+
+    private void setStatus(Order o, Order.OrderStatus s) {
+        jdbcTemplate.update("UPDATE orders SET status = ? WHERE id = ?", s.name(), o.getId());
+    }
+
+    private Order.OrderStatus status(Order o) {
+        return Order.OrderStatus.valueOf(jdbcTemplate.queryForObject(
+                "SELECT status FROM orders WHERE id = ?", String.class, o.getId()));
+    }
+
+    private int holds(Order o) {
+        return jdbcTemplate.queryForObject("SELECT count(*) FROM inventory_hold WHERE order_id = ?",
+                Integer.class, o.getId());
+    }
+
+    private int plainStock() {
+        return jdbcTemplate.queryForObject("SELECT quantity FROM product WHERE id = ?", Integer.class, plain.getId());
+    }
+
+    private int variantStock() {
+        return jdbcTemplate.queryForObject("SELECT stock FROM product_variant WHERE id = ?", Integer.class, variant.getId());
+    }
+
+    private static ShippingAddressRequest shipping() {
+        ShippingAddressRequest dto = new ShippingAddressRequest();
+        dto.setFullName("A B");
+        dto.setPhone("0901234567");
+        dto.setProvince("HCM");
+        dto.setDistrict("1");
+        dto.setWard("Ben Nghe");
+        dto.setAddressLine("1 Le Loi");
+        return dto;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
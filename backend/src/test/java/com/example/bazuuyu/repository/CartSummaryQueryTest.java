@@ -0,0 +1,62 @@
+package com.example.bazuuyu.repository;
+
+import com.example.bazuuyu.entity.*;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * badge gio hang: so dong, tong so luong, tong tien trong 1 statement (gia variant uu tien hon gia san pham).
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CartSummaryQueryTest {
+
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    void summaryIsOneAggregateStatement() {
+        Product p = Product.builder().name("Bep").price(BigDecimal.valueOf(100)).quantity(5)
+                .category(Category.BBQ).build();
+        p.addVariant(ProductVariant.builder().name("L").sku("L-1").price(BigDecimal.valueOf(70)).stock(5).build());
+        em.persist(p);
+        Cart cart = Cart.builder().guestId("g").status("ACTIVE").createdAt(LocalDateTime.now()).build();
+        Cart empty = Cart.builder().guestId("e").status("ACTIVE").createdAt(LocalDateTime.now()).build();
+        em.persist(cart);
+        em.persist(empty);
+        em.persist(CartItem.builder().cart(cart).product(p).quantity(2).build());
+        em.persist(CartItem.builder().cart(cart).product(p).variant(p.getVariants().get(0)).quantity(3).build());
+        em.flush();
+        em.clear();
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        CartItemRepository.SummaryRow row = cartItemRepository.summarize(cart.getId());
+
+        assertEquals(1, stats.getPrepareStatementCount());
+        assertEquals(2, row.getLineCount());
+        assertEquals(5, row.getItemCount());
+        assertEquals(0, BigDecimal.valueOf(2 * 100 + 3 * 70).compareTo(row.getTotalPrice()));
+
+        CartItemRepository.SummaryRow none = cartItemRepository.summarize(empty.getId());
+        assertEquals(0, none.getLineCount());
+        assertEquals(0, none.getItemCount());
+        assertEquals(0, BigDecimal.ZERO.compareTo(none.getTotalPrice()));
+    }
+}
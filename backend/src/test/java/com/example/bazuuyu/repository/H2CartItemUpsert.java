@@ -0,0 +1,32 @@
+package com.example.bazuuyu.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * CartItemUpsert cho test tren H2 (khong co ON CONFLICT DO UPDATE): MERGE chuan, cung tham so va cung ket qua
+ * nhung khong an toan dong thoi. chi o src/test; @Import class nay thay cho CartItemUpsert.
+ */
+public class H2CartItemUpsert extends CartItemUpsert {
+
+    private static final String MERGE = """
+            MERGE INTO cart_item c
+            USING (SELECT CAST(? AS BIGINT) AS cart_id, CAST(? AS BIGINT) AS product_id,
+                          CAST(? AS BIGINT) AS variant_id, CAST(? AS INTEGER) AS quantity
+                   WHERE CAST(? AS BIGINT) IS NULL
+                      OR EXISTS (SELECT 1 FROM product_variant WHERE id = ? AND product_id = ?)) s
+            ON c.cart_id = s.cart_id AND c.product_id = s.product_id
+               AND COALESCE(c.variant_id, 0) = COALESCE(s.variant_id, 0)
+            WHEN MATCHED THEN UPDATE SET quantity = c.quantity + s.quantity
+            WHEN NOT MATCHED THEN INSERT (cart_id, product_id, variant_id, quantity)
+                VALUES (s.cart_id, s.product_id, s.variant_id, s.quantity)
+            """;
+
+    public H2CartItemUpsert(JdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    protected String upsertSql() {
+        return MERGE;
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.bazuuyu.repository;
+
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+/**
+ * ProductPairCountUpsert cho test tren H2 (khong co ON CONFLICT DO UPDATE): MERGE chuan, cung ket qua
+ * nhung khong an toan dong thoi. chi o src/test; @Import class nay thay cho ProductPairCountUpsert.
+ */
+public class H2ProductPairCountUpsert extends ProductPairCountUpsert {
+
+    private static final String MERGE = "MERGE INTO product_pair_count p USING (" + PAIRS + """
+            ) s
+            ON p.product_a = s.product_a AND p.product_b = s.product_b
+            WHEN MATCHED THEN UPDATE SET cnt = p.cnt + s.n
+            WHEN NOT MATCHED THEN INSERT (product_a, product_b, cnt) VALUES (s.product_a, s.product_b, s.n)
+            """;
+
+    public H2ProductPairCountUpsert(NamedParameterJdbcTemplate jdbcTemplate) {
+        super(jdbcTemplate);
+    }
+
+    @Override
+    protected String upsertSql() {
+        return MERGE;
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.bazuuyu.repository;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.entity.ProductImage;
+import com.example.bazuuyu.entity.ProductVariant;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * trang listing 24 san pham (moi san pham co variant + anh) phai chi ton 1-2 statement.
+ * chay tren H2 (khong can Postgres), schema tao tu entity.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class ProductCardQueryTest {
+
+    @Autowired ProductRepository productRepository;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+
+    @Test
+    void cardPageUsesAtMostTwoStatements() {
+        for (int i = 0; i < 30; i++) {
+            Product p = Product.builder()
+                    .name("Bep nuong " + i)
+                    .price(BigDecimal.valueOf(500_000))
+                    .quantity(0)
+                    .category(Category.BBQ)
+                    .build();
+            p.addImage(ProductImage.builder().imageUrl("img-" + i + ".jpg").build());
+            if (i % 2 == 0) {
+                p.addVariant(ProductVariant.builder().name("S").sku("S-" + i)
+                        .price(BigDecimal.valueOf(200_000)).stock(3).build());
+                p.addVariant(ProductVariant.builder().name("L").sku("L-" + i)
+                        .price(BigDecimal.valueOf(300_000)).stock(0).build());
+            }
+            em.persist(p);
+        }
+        em.flush();
+        em.clear();
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+
+        Page<ProductRepository.CardRow> page = productRepository.findCards(Category.BBQ, PageRequest.of(0, 24));
+
+        assertEquals(24, page.getContent().size());
+        assertEquals(30, page.getTotalElements());
+        assertTrue(stats.getPrepareStatementCount() <= 2,
+                "expected <= 2 statements, got " + stats.getPrepareStatementCount());
+
+        Map<String, ProductRepository.CardRow> byName = page.getContent().stream()
+                .collect(Collectors.toMap(ProductRepository.CardRow::getName, Function.identity()));
+        ProductRepository.CardRow withVariants = byName.get("Bep nuong 28");
+        assertEquals(0, BigDecimal.valueOf(200_000).compareTo(withVariants.getDisplayPrice()));
+        assertTrue(withVariants.getInStock());
+        assertEquals("img-28.jpg", withVariants.getMainImageUrl());
+
+        ProductRepository.CardRow plain = byName.get("Bep nuong 29");
+        assertEquals(0, BigDecimal.valueOf(500_000).compareTo(plain.getDisplayPrice()));
+        assertFalse(plain.getInStock());
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.bazuuyu.repository;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.entity.ProductCard;
+import com.example.bazuuyu.entity.ProductSalesBucket;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * xep hang ban chay tu product_sales_bucket: chi tinh bucket trong cua so 30 ngay, cong moi variant/ngay,
+ * co isBestSeller (admin danh dau) dung sau san pham co ban; bucket ngoai cua so bi don.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+class ProductSalesRankingTest {
+
+    @Autowired ProductRepository productRepository;
+    @Autowired ProductCardRepository productCardRepository;
+    @Autowired ProductSalesBucketRepository bucketRepository;
+
+    private final LocalDate today = LocalDate.now();
+    private final LocalDate since = today.minusDays(29);
+
+    private Product oldHit;    // ban nhieu nhung ngoai cua so
+    private Product flagged;   // khong ban duoc, admin danh dau best seller
+    private Product steady;    // 5 hom nay
+    private Product top;       // 3 + 4 tren 2 variant, 2 ngay
+
+    @BeforeEach
+    void setUp() {
+        oldHit = save("Bep nuong", false);
+        flagged = save("Noi lau", true);
+        steady = save("Vi nuong", false);
+        top = save("Set lau", false);
+
+        bucketRepository.save(new ProductSalesBucket(oldHit.getId(), 0L, today.minusDays(40), 50));
+        bucketRepository.save(new ProductSalesBucket(steady.getId(), 0L, today, 5));
+        bucketRepository.save(new ProductSalesBucket(top.getId(), 1L, today, 3));
+        bucketRepository.save(new ProductSalesBucket(top.getId(), 2L, today.minusDays(10), 4));
+        bucketRepository.flush();
+    }
+
+    @Test
+    void productsRankedByUnitsInsideWindow() {
+        Page<Product> page = productRepository.findAllRankedBySales(since, PageRequest.of(0, 10));
+
+        assertEquals(List.of(top.getId(), steady.getId(), flagged.getId(), oldHit.getId()),
+                page.getContent().stream().map(Product::getId).toList());
+        assertEquals(4, page.getTotalElements());
+    }
+
+    @Test
+    void bestSellerCardsSkipProductsWithoutRecentSales() {
+        for (Product p : List.of(oldHit, flagged, steady, top)) {
+            productCardRepository.save(ProductCard.builder().productId(p.getId()).name(p.getName())
+                    .displayPrice(p.getPrice()).isBestSeller(p.isBestSeller()).build());
+        }
+        productCardRepository.flush();
+
+        List<ProductCard> cards = productCardRepository.findBestSellers(since, Limit.of(10));
+
+        assertEquals(List.of(top.getId(), steady.getId(), flagged.getId()),
+                cards.stream().map(ProductCard::getProductId).toList());
+        assertEquals(2, productCardRepository.findBestSellers(since, Limit.of(2)).size());
+    }
+
+    @Test
+    void pruneDropsOnlyBucketsBeforeWindow() {
+        assertEquals(1, bucketRepository.deleteOlderThan(since));
+
+        assertEquals(3, bucketRepository.count());
+        assertTrue(bucketRepository.findAll().stream().noneMatch(b -> b.getSaleDate().isBefore(since)));
+        // ngay dau cua so van giu
+        bucketRepository.save(new ProductSalesBucket(steady.getId(), 0L, since, 1));
+        assertEquals(0, bucketRepository.deleteOlderThan(since));
+    }
+
+    private Product save(String name, boolean bestSeller) {
+        return productRepository.saveAndFlush(Product.builder().name(name).price(BigDecimal.TEN)
+                .category(Category.HOTPOT).isBestSeller(bestSeller).build());
+    }
+}
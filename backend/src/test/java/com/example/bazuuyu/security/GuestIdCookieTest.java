@@ -0,0 +1,103 @@
+package com.example.bazuuyu.security;
+
+import com.example.bazuuyu.repository.CartRepository;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * GUEST_ID: chi cap (va gia han) khi ghi, doc lai duoc bang chu ky, id gia/kieu cu bi bo qua (khong can DB).
+ * khong co khoa thi khong khoi dong; GuestIdFilter ky lai UUID kieu cu chi khi guest do con gio ACTIVE.
+ */
+class GuestIdCookieTest {
+
+    private final GuestIdCookie guestIds = new GuestIdCookie("test-secret");
+
+    @Test
+    void issuedCookieVerifiesOnNextRequest() {
+        MockHttpServletRequest first = new MockHttpServletRequest();
+        MockHttpServletResponse res = new MockHttpServletResponse();
+        assertTrue(guestIds.read(first).isEmpty());
+
+        String id = guestIds.getOrIssue(first, res);
+        Cookie issued = res.getCookie(GuestIdCookie.COOKIE_NAME);
+        assertNotNull(issued);
+        assertEquals(id, guestIds.getOrIssue(first, res)); // cung request: khong cap lai
+        assertEquals(1, res.getCookies().length);
+
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(new Cookie(GuestIdCookie.COOKIE_NAME, issued.getValue()));
+        assertEquals(id, guestIds.read(next).orElseThrow());
+        assertFalse(guestIds.hasInvalidCookie(next));
+
+        // ghi tiep vao gio: cung id, cookie gia han (gio guest song theo lan ghi cuoi)
+        MockHttpServletResponse renewed = new MockHttpServletResponse();
+        assertEquals(id, guestIds.getOrIssue(next, renewed));
+        assertEquals(issued.getValue(), renewed.getCookie(GuestIdCookie.COOKIE_NAME).getValue());
+        assertEquals(GuestIdCookie.MAX_AGE_SECONDS, renewed.getCookie(GuestIdCookie.COOKIE_NAME).getMaxAge());
+    }
+
+    @Test
+    void forgedOrLegacyIdsAreRejected() {
+        MockHttpServletRequest legacy = new MockHttpServletRequest();
+        legacy.setCookies(new Cookie(GuestIdCookie.COOKIE_NAME, UUID.randomUUID().toString()));
+        assertTrue(guestIds.read(legacy).isEmpty());
+        assertTrue(guestIds.hasInvalidCookie(legacy));
+
+        MockHttpServletResponse otherKey = new MockHttpServletResponse();
+        new GuestIdCookie("other-secret").getOrIssue(new MockHttpServletRequest(), otherKey);
+        MockHttpServletRequest forged = new MockHttpServletRequest();
+        forged.setCookies(otherKey.getCookie(GuestIdCookie.COOKIE_NAME));
+        assertTrue(guestIds.read(forged).isEmpty());
+    }
+
+    @Test
+    void secretIsRequired() {
+        assertThrows(IllegalStateException.class, () -> new GuestIdCookie(""));
+        assertThrows(IllegalStateException.class, () -> new GuestIdCookie(" "));
+    }
+
+    @Test
+    void legacyIdWithActiveCartIsResignedInPlace() throws Exception {
+        String legacyId = UUID.randomUUID().toString();
+        CartRepository carts = mock(CartRepository.class);
+        when(carts.existsByGuestIdAndStatus(legacyId, "ACTIVE")).thenReturn(true);
+        MockHttpServletRequest req = new MockHttpServletRequest();
+        req.setCookies(new Cookie(GuestIdCookie.COOKIE_NAME, legacyId));
+        MockHttpServletResponse res = new MockHttpServletResponse();
+
+        new GuestIdFilter(guestIds, carts).doFilter(req, res, new MockFilterChain());
+
+        assertEquals(legacyId, guestIds.read(req).orElseThrow()); // controller trong request nay thay gio cu
+        Cookie resigned = res.getCookie(GuestIdCookie.COOKIE_NAME);
+        assertNotNull(resigned);
+        assertEquals(GuestIdCookie.MAX_AGE_SECONDS, resigned.getMaxAge());
+        MockHttpServletRequest next = new MockHttpServletRequest();
+        next.setCookies(resigned);
+        assertEquals(legacyId, guestIds.read(next).orElseThrow());
+    }
+
+    @Test
+    void legacyIdWithoutCartAndForgedIdsAreCleared() throws Exception {
+        CartRepository carts = mock(CartRepository.class);
+        GuestIdFilter filter = new GuestIdFilter(guestIds, carts);
+        for (String value : new String[]{UUID.randomUUID().toString(), "not-a-uuid", UUID.randomUUID() + ".forged"}) {
+            MockHttpServletRequest req = new MockHttpServletRequest();
+            req.setCookies(new Cookie(GuestIdCookie.COOKIE_NAME, value));
+            MockHttpServletResponse res = new MockHttpServletResponse();
+
+            filter.doFilter(req, res, new MockFilterChain());
+
+            assertTrue(guestIds.read(req).isEmpty());
+            assertEquals(0, res.getCookie(GuestIdCookie.COOKIE_NAME).getMaxAge());
+        }
+        verify(carts, times(1)).existsByGuestIdAndStatus(anyString(), eq("ACTIVE")); // chi UUID tran
+    }
+}
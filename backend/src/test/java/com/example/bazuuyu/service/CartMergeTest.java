@@ -0,0 +1,160 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.dto.request.CartMergeItem;
+import com.example.bazuuyu.dto.request.CreateCartItemRequest;
+import com.example.bazuuyu.entity.*;
+import com.example.bazuuyu.repository.*;
+import com.example.bazuuyu.security.GuestIdCookie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * merge gio hang/wishlist luc dang nhap: so statement Hibernate khong tang theo so dong, dong trung/da co duoc cong don.
+ * H2 chay MERGE cua H2CartItemUpsert (ON CONFLICT chi co tren Postgres).
+ */
+@DataJpaTest
+@Import({CartService.class, H2CartItemUpsert.class, GuestIdCookie.class, WishlistService.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CartMergeTest {
+
+    private static final int PRODUCTS = 12;
+
+    @Autowired CartService cartService;
+    @Autowired WishlistService wishlistService;
+    @Autowired ProductRepository productRepository;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+
+    private Customer customer;
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        customer = customerRepository.save(Customer.builder().username("merge").password("x")
+                .email("merge@example.com").firstName("A").lastName("B").phone("0900000000")
+                .createdAt(LocalDateTime.now()).build());
+        products = IntStream.range(0, PRODUCTS).mapToObj(i -> {
+            Product p = Product.builder().name("P" + i).price(BigDecimal.TEN).quantity(5)
+                    .category(Category.BBQ).build();
+            p.addVariant(ProductVariant.builder().name("S").sku("S-" + i).price(BigDecimal.TEN).stock(5).build());
+            return productRepository.save(p);
+        }).toList();
+    }
+
+    @Test
+    void cartMergeIsBulkAndAddsToExistingLines() {
+        Product first = products.get(0);
+        ProductVariant firstVariant = first.getVariants().get(0);
+        Cart cart = cartRepository.save(Cart.builder().customer(customer).status("ACTIVE")
+                .createdAt(LocalDateTime.now()).build());
+        cartItemRepository.save(CartItem.builder().cart(cart).product(first).variant(firstVariant).quantity(1).build());
+        em.flush();
+        em.clear();
+
+        List<CartMergeItem> items = new ArrayList<>();
+        items.add(line(first.getId(), firstVariant.getId(), 2));
+        items.add(line(first.getId(), firstVariant.getId(), 1)); // trung trong payload
+        for (Product p : products) {
+            items.add(line(p.getId(), null, 3));
+        }
+
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        cartService.merge(customer.getId(), items);
+
+        assertTrue(stats.getPrepareStatementCount() <= 6,
+                "expected <= 6 Hibernate statements for " + items.size() + " lines, got "
+                        + stats.getPrepareStatementCount());
+        assertEquals(4, quantity(cart.getId(), first.getId(), firstVariant.getId()));
+        assertEquals(3, quantity(cart.getId(), products.get(PRODUCTS - 1).getId(), null));
+        assertEquals(PRODUCTS + 1, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM cart_item WHERE cart_id = ?", Integer.class, cart.getId()));
+    }
+
+    @Test
+    void cartMergeRejectsVariantOfAnotherProduct() {
+        Long otherVariant = products.get(1).getVariants().get(0).getId();
+        assertThrows(RuntimeException.class, () -> cartService.merge(customer.getId(),
+                List.of(line(products.get(0).getId(), otherVariant, 1))));
+    }
+
+    @Test
+    void addingSameLineTwiceKeepsOneRow() {
+        Product p = products.get(2);
+        Long variantId = p.getVariants().get(0).getId();
+        Cart cart = cartRepository.save(Cart.builder().customer(customer).status("ACTIVE")
+                .createdAt(LocalDateTime.now()).build());
+
+        for (Long v : new Long[]{variantId, variantId, null}) {
+            CreateCartItemRequest req = new CreateCartItemRequest();
+            req.setCartId(cart.getId());
+            req.setProductId(p.getId());
+            req.setVariantId(v);
+            req.setQuantity(2);
+            cartService.addCartItem(req);
+        }
+
+        assertEquals(4, quantity(cart.getId(), p.getId(), variantId));
+        assertEquals(2, quantity(cart.getId(), p.getId(), null));
+        assertThrows(RuntimeException.class, () -> {
+            CreateCartItemRequest req = new CreateCartItemRequest();
+            req.setCartId(cart.getId());
+            req.setProductId(p.getId());
+            req.setVariantId(products.get(3).getVariants().get(0).getId());
+            cartService.addCartItem(req);
+        });
+    }
+
+    @Test
+    void wishlistMergeSkipsExistingProducts() {
+        wishlistService.addProductToWishlist(customer.getId(), products.get(0).getId());
+        em.flush();
+        em.clear();
+
+        List<Long> ids = new ArrayList<>(products.stream().map(Product::getId).toList());
+        ids.add(products.get(1).getId());
+        wishlistService.merge(customer.getId(), ids);
+
+        assertEquals(PRODUCTS, jdbcTemplate.queryForObject("SELECT count(*) FROM wishlist_item", Integer.class));
+    }
+
+    private static CartMergeItem line(Long productId, Long variantId, int qty) {
+        CartMergeItem it = new CartMergeItem();
+        it.setProductId(productId);
+        it.setVariantId(variantId);
+        it.setQuantity(qty);
+        return it;
+    }
+
+    private int quantity(Long cartId, Long productId, Long variantId) {
+        return jdbcTemplate.queryForObject(variantId == null
+                        ? "SELECT quantity FROM cart_item WHERE cart_id = ? AND product_id = ? AND variant_id IS NULL"
+                        : "SELECT quantity FROM cart_item WHERE cart_id = ? AND product_id = ? AND variant_id = " + variantId,
+                Integer.class, cartId, productId);
+    }
+}
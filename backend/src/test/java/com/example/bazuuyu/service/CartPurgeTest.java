@@ -0,0 +1,103 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.dto.request.CreateCartItemRequest;
+import com.example.bazuuyu.entity.*;
+import com.example.bazuuyu.repository.*;
+import com.example.bazuuyu.security.GuestIdCookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * purge gio hang: chi xoa gio guest khong hoat dong qua han va gio CHECKED_OUT cu tinh tu luc checkout
+ * (kem cart_item), theo lo. gio tao tu lau nhung vua them/sua dong hoac vua checkout thi giu.
+ */
+@DataJpaTest
+@Import({CartService.class, H2CartItemUpsert.class, GuestIdCookie.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+class CartPurgeTest {
+
+    @Autowired CartService cartService;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired CustomerRepository customerRepository;
+    @Autowired ProductRepository productRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    @Test
+    void purgesOnlyStaleGuestAndCheckedOutCartsInBatches() {
+        LocalDateTime old = LocalDateTime.now().minusDays(40);
+        LocalDateTime recent = LocalDateTime.now().minusDays(1);
+        Customer customer = customerRepository.save(Customer.builder().username("purge").password("x")
+                .email("purge@example.com").firstName("A").lastName("B").phone("0900000000")
+                .createdAt(old).build());
+        Product p = Product.builder().name("P").price(BigDecimal.TEN).quantity(5).category(Category.BBQ).build();
+        p = productRepository.save(p);
+
+        for (int i = 0; i < 3; i++) withItem(cart(null, "g-old-" + i, "ACTIVE", old, null), p); // xoa
+        withItem(cart(null, "g-new", "ACTIVE", recent, null), p);                               // giu
+        Cart busy = cart(null, "g-busy", "ACTIVE", old, null);                                   // giu: vua them hang
+        addItem(busy, p);
+        Cart edited = withItem(cart(null, "g-edited", "ACTIVE", old, null), p);                  // giu: vua sua so luong
+        cartService.updateCartItemQuantity(cartItemRepository.findByCartId(edited.getId()).get(0).getId(), 3);
+        cart(customer, null, "CHECKED_OUT", old, old);                                           // xoa
+        Cart justPaid = cart(customer, null, "CHECKED_OUT", old, recent);                        // giu
+        Cart active = withItem(cart(customer, null, "ACTIVE", old, null), p);                    // giu
+
+        LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+        CartService.PurgeResult first = cartService.purgeStale(cutoff, cutoff, 2);
+        CartService.PurgeResult second = cartService.purgeStale(cutoff, cutoff, 2);
+        CartService.PurgeResult third = cartService.purgeStale(cutoff, cutoff, 2);
+
+        assertEquals(2, first.carts());
+        assertEquals(4, first.carts() + second.carts());
+        assertEquals(3, first.items() + second.items());
+        assertEquals(0, third.carts());
+        assertEquals(5, cartRepository.count());
+        for (Cart kept : new Cart[]{busy, edited, justPaid, active}) {
+            assertTrue(cartRepository.findById(kept.getId()).isPresent());
+        }
+        assertEquals(4, jdbcTemplate.queryForObject("SELECT count(*) FROM cart_item", Integer.class));
+    }
+
+    @Test
+    void checkoutStatusStampsCheckoutTime() {
+        Cart cart = cart(null, "g-co", "ACTIVE", LocalDateTime.now().minusDays(40), null);
+        assertEquals(cart.getCreatedAt(), cart.getUpdatedAt()); // gio moi: hoat dong cuoi = luc tao
+
+        cartService.updateCartStatus(cart.getId(), "CHECKED_OUT");
+
+        LocalDateTime checkedOutAt = cartRepository.findById(cart.getId()).orElseThrow().getCheckedOutAt();
+        assertNotNull(checkedOutAt);
+        assertTrue(checkedOutAt.isAfter(LocalDateTime.now().minusMinutes(1)));
+    }
+
+    private Cart cart(Customer customer, String guestId, String status, LocalDateTime createdAt,
+                      LocalDateTime checkedOutAt) {
+        return cartRepository.save(Cart.builder().customer(customer).guestId(guestId).status(status)
+                .createdAt(createdAt).checkedOutAt(checkedOutAt).build());
+    }
+
+    private Cart withItem(Cart cart, Product p) {
+        cartItemRepository.save(CartItem.builder().cart(cart).product(p).quantity(1).build());
+        return cart;
+    }
+
+    private void addItem(Cart cart, Product p) {
+        CreateCartItemRequest req = new CreateCartItemRequest();
+        req.setCartId(cart.getId());
+        req.setProductId(p.getId());
+        req.setQuantity(1);
+        cartService.addCartItem(req);
+    }
+}
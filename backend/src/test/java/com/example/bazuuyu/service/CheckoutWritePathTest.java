@@ -0,0 +1,152 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.dto.request.ShippingAddressRequest;
+import com.example.bazuuyu.entity.*;
+import com.example.bazuuyu.inventory.FlashSaleStock;
+import com.example.bazuuyu.repository.*;
+import com.example.bazuuyu.security.GuestIdCookie;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * checkout: so statement Hibernate giong nhau cho gio 1 dong va 10 dong (INSERT order_item di theo batch,
+ * gio xoa bang 1 DELETE). inventory_hold do Flyway tao nen test tu tao bang.
+ */
+@DataJpaTest
+@Import({OrderService.class, CartService.class, H2CartItemUpsert.class, GuestIdCookie.class,
+        InventoryService.class, InventoryHoldService.class, FlashSaleStock.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CheckoutWritePathTest {
+
+    private static final int PRODUCTS = 10;
+
+    @Autowired OrderService orderService;
+    @Autowired ProductRepository productRepository;
+    @Autowired CartRepository cartRepository;
+    @Autowired CartItemRepository cartItemRepository;
+    @Autowired ProductVariantRepository productVariantRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired EntityManager em;
+    @Autowired EntityManagerFactory emf;
+
+    private List<Product> products;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS inventory_hold (
+                    id bigserial primary key, order_id bigint not null, product_id bigint not null,
+                    variant_id bigint, quantity int not null, expires_at timestamp not null,
+                    created_at timestamp not null default now())
+                """);
+        products = IntStream.range(0, PRODUCTS).mapToObj(i -> {
+            Product p = Product.builder().name("P" + i).price(BigDecimal.valueOf(10 + i)).quantity(100)
+                    .category(Category.BBQ).build();
+            return productRepository.save(p);
+        }).toList();
+    }
+
+    @Test
+    void statementCountDoesNotGrowWithCartLines() {
+        checkout(1); // sequence pooled: lan dau moi goi nextval
+        long oneLine = checkout(1);
+        long tenLines = checkout(PRODUCTS);
+        assertEquals(oneLine, tenLines);
+    }
+
+    @Test
+    void checkoutCopiesLinesAndEmptiesCart() {
+        Cart cart = cartWith(3);
+        Order order = orderService.placeOrderByCartId(cart.getId(), shipping());
+        em.flush();
+        em.clear();
+
+        Order saved = em.find(Order.class, order.getId());
+        assertEquals(3, saved.getItems().size());
+        assertEquals(0, BigDecimal.valueOf(10 * 2 + 11 * 2 + 12 * 2).compareTo(saved.getTotalAmount()));
+        assertEquals("0901234567", saved.getShippingAddress().getPhone());
+        assertTrue(cartItemRepository.findByCartId(cart.getId()).isEmpty());
+        assertEquals("CHECKED_OUT", cartRepository.findById(cart.getId()).orElseThrow().getStatus());
+        assertEquals(98, productRepository.findById(products.get(0).getId()).orElseThrow().getQuantity());
+        assertEquals(3, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM inventory_hold WHERE order_id = ?", Integer.class, order.getId()));
+    }
+
+    @Test
+    void variantLineIsChargedTheVariantPriceLikeTheCartSummary() {
+        Product p = products.get(0); // gia 10
+        ProductVariant big = productVariantRepository.save(ProductVariant.builder().product(p).name("XL")
+                .sku("P0-XL").price(BigDecimal.valueOf(25)).stock(10).build());
+        Cart cart = cartWith(1);
+        cartItemRepository.save(CartItem.builder().cart(cart).product(p).variant(big).quantity(3).build());
+        em.flush();
+        em.clear();
+        BigDecimal summary = cartItemRepository.summarize(cart.getId()).getTotalPrice();
+
+        Order order = orderService.placeOrderByCartId(cart.getId(), shipping());
+        em.flush();
+        em.clear();
+
+        Order saved = em.find(Order.class, order.getId());
+        assertEquals(0, BigDecimal.valueOf(10 * 2 + 25 * 3).compareTo(saved.getTotalAmount()));
+        assertEquals(0, summary.compareTo(saved.getTotalAmount()));
+        assertTrue(saved.getItems().stream().anyMatch(oi -> oi.getVariant() != null
+                && BigDecimal.valueOf(25).compareTo(oi.getPrice()) == 0));
+        assertEquals(7, productVariantRepository.findById(big.getId()).orElseThrow().getStock());
+    }
+
+    // so PreparedStatement Hibernate cua 1 lan checkout gio co n dong
+    private long checkout(int lines) {
+        Cart cart = cartWith(lines);
+        Statistics stats = emf.unwrap(SessionFactory.class).getStatistics();
+        stats.clear();
+        orderService.placeOrderByCartId(cart.getId(), shipping());
+        em.flush();
+        long statements = stats.getPrepareStatementCount();
+        assertEquals(1 + lines, stats.getEntityInsertCount()); // orders + order_item
+        em.clear();
+        return statements;
+    }
+
+    private Cart cartWith(int lines) {
+        Cart cart = cartRepository.save(Cart.builder().guestId("g").status("ACTIVE")
+                .createdAt(LocalDateTime.now()).build());
+        for (int i = 0; i < lines; i++) {
+            cartItemRepository.save(CartItem.builder().cart(cart).product(products.get(i)).quantity(2).build());
+        }
+        em.flush();
+        em.clear();
+        return cart;
+    }
+
+    private static ShippingAddressRequest shipping() {
+        ShippingAddressRequest dto = new ShippingAddressRequest();
+        dto.setFullName("A B");
+        dto.setPhone("+84 901 234 567");
+        dto.setProvince("HCM");
+        dto.setDistrict("1");
+        dto.setWard("Ben Nghe");
+        dto.setAddressLine("1 Le Loi");
+        return dto;
+    }
+}
@@ -0,0 +1,139 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.exception.IdempotencyKeyReusedException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Idempotency-Key: retry nhan lai ket qua lan dau, request trung dang chay thi cho, loi thi giai phong key.
+ * moi lan execute la 1 transaction that (test khong boc transaction). idempotency_key do Flyway tao nen test tu tao bang.
+ */
+@DataJpaTest
+@Import({IdempotencyService.class, JacksonAutoConfiguration.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+class IdempotencyServiceTest {
+
+    @Autowired IdempotencyService idempotencyService;
+    @Autowired JdbcTemplate jdbcTemplate;
+
+    private final AtomicInteger runs = new AtomicInteger();
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("""
+                CREATE TABLE IF NOT EXISTS idempotency_key (
+                    key_hash bytea primary key, request_hash bytea not null,
+                    response text, expires_at timestamp not null)
+                """);
+        jdbcTemplate.update("DELETE FROM idempotency_key");
+    }
+
+    @Test
+    void retryReplaysFirstResponse() {
+        IdempotencyService.Result<String> first = execute("k1", "cart-1");
+        IdempotencyService.Result<String> retry = execute("k1", "cart-1");
+
+        assertFalse(first.replayed());
+        assertTrue(retry.replayed());
+        assertEquals(first.body(), retry.body());
+        assertEquals(1, runs.get());
+        // cung key o scope khac la key khac
+        assertFalse(idempotencyService.execute("cod", "k1", "cart-1", String.class, () -> "cod").replayed());
+    }
+
+    @Test
+    void sameKeyWithOtherRequestIsRejected() {
+        execute("k2", "cart-1");
+        assertThrows(IdempotencyKeyReusedException.class, () -> execute("k2", "cart-2"));
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void failedAttemptReleasesKey() {
+        assertThrows(IllegalStateException.class, () -> idempotencyService.execute(
+                "checkout", "k3", "cart-1", String.class, () -> { throw new IllegalStateException("Cart is empty"); }));
+        IdempotencyService.Result<String> retry = execute("k3", "cart-1");
+        assertFalse(retry.replayed());
+        assertEquals(1, runs.get());
+    }
+
+    @Test
+    void withoutKeyEveryCallRuns() {
+        idempotencyService.execute("checkout", null, "cart-1", Integer.class, runs::incrementAndGet);
+        idempotencyService.execute("checkout", " ", "cart-1", Integer.class, runs::incrementAndGet);
+        assertEquals(2, runs.get());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_key", Integer.class));
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForInFlightAttempt() throws Exception {
+        CountDownLatch inFlight = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<IdempotencyService.Result<String>> first = pool.submit(() -> idempotencyService.execute(
+                    "checkout", "k4", List.of("guest:g", "cart-1"), String.class, () -> {
+                        inFlight.countDown();
+                        await(release);
+                        return "order-" + runs.incrementAndGet();
+                    }));
+            assertTrue(inFlight.await(5, TimeUnit.SECONDS));
+            Future<IdempotencyService.Result<String>> duplicate = pool.submit(() -> execute("k4", "cart-1"));
+
+            // lan dau chua commit: ban sao bi chan tren primary key, khong tu chay
+            assertThrows(TimeoutException.class, () -> duplicate.get(300, TimeUnit.MILLISECONDS));
+            release.countDown();
+
+            assertFalse(first.get(5, TimeUnit.SECONDS).replayed());
+            IdempotencyService.Result<String> replayed = duplicate.get(5, TimeUnit.SECONDS);
+            assertTrue(replayed.replayed());
+            assertEquals("order-1", replayed.body());
+            assertEquals(1, runs.get());
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void purgeDropsOnlyExpiredKeys() {
+        execute("k5", "cart-1");
+        jdbcTemplate.update("INSERT INTO idempotency_key (key_hash, request_hash, expires_at) VALUES (?, ?, ?)",
+                new byte[]{1}, new byte[]{1}, java.sql.Timestamp.valueOf("2000-01-01 00:00:00"));
+
+        idempotencyService.purgeExpired();
+
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM idempotency_key", Integer.class));
+        assertTrue(execute("k5", "cart-1").replayed());
+    }
+
+    private IdempotencyService.Result<String> execute(String key, String request) {
+        return idempotencyService.execute("checkout", key, List.of("guest:g", request), String.class,
+                () -> "order-" + runs.incrementAndGet());
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
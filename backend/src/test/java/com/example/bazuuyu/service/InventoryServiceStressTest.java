@@ -0,0 +1,105 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.Product;
+import com.example.bazuuyu.entity.ProductVariant;
+import com.example.bazuuyu.exception.InsufficientStockException;
+import com.example.bazuuyu.inventory.FlashSaleStock;
+import com.example.bazuuyu.repository.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * nhieu thread checkout cung luc tren 1 SKU: so don thanh cong == ton kho ban dau, ton kho khong bao gio am.
+ * moi "checkout" la 1 transaction that (test khong boc transaction).
+ */
+@DataJpaTest
+@Import({InventoryService.class, FlashSaleStock.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("h2test")
+@TestPropertySource(properties = "spring.datasource.hikari.maximum-pool-size=16")
+class InventoryServiceStressTest {
+
+    private static final int STOCK = 50;
+    private static final int THREADS = 16;
+    private static final int ATTEMPTS_PER_THREAD = 20;
+
+    @Autowired InventoryService inventoryService;
+    @Autowired ProductRepository productRepository;
+    @Autowired JdbcTemplate jdbcTemplate;
+    @Autowired PlatformTransactionManager transactionManager;
+
+    @Test
+    void concurrentCheckoutsNeverOversell() throws Exception {
+        Product p = Product.builder().name("Drop").price(BigDecimal.TEN).quantity(STOCK)
+                .category(Category.BBQ).build();
+        p.addVariant(ProductVariant.builder().name("One").sku("DROP-1")
+                .price(BigDecimal.TEN).stock(STOCK).build());
+        p = productRepository.save(p);
+        Long productId = p.getId();
+        Long variantId = p.getVariants().get(0).getId();
+
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        // gio co 1 dong variant + 1 dong san pham thuong: thieu 1 dong => ca 2 rollback
+                        tx.executeWithoutResult(s -> inventoryService.reserve(List.of(
+                                new InventoryService.StockLine(productId, variantId, 1),
+                                new InventoryService.StockLine(productId, null, 1))));
+                        accepted.incrementAndGet();
+                    } catch (InsufficientStockException e) {
+                        rejected.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> f : futures) f.get(60, TimeUnit.SECONDS);
+        pool.shutdown();
+
+        Integer variantStock = jdbcTemplate.queryForObject(
+                "SELECT stock FROM product_variant WHERE id = ?", Integer.class, variantId);
+        Integer productQty = jdbcTemplate.queryForObject(
+                "SELECT quantity FROM product WHERE id = ?", Integer.class, productId);
+
+        assertEquals(STOCK, accepted.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - STOCK, rejected.get());
+        assertEquals(0, variantStock);
+        assertEquals(0, productQty);
+    }
+
+    @Test
+    void reserveRequiresCheckoutTransaction() {
+        assertThrows(org.springframework.transaction.IllegalTransactionStateException.class,
+                () -> inventoryService.reserve(List.of(new InventoryService.StockLine(1L, null, 1))));
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.bazuuyu.service;
+
+import com.example.bazuuyu.entity.Category;
+import com.example.bazuuyu.entity.ProductCard;
+import com.example.bazuuyu.repository.ProductCardRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * ETag landing: cung noi dung => cung ETag qua moi lan rebuild va giua cac instance (304 sau load balancer),
+ * noi dung doi => ETag doi.
+ */
+class StorefrontLandingServiceTest {
+
+    private final ProductCardRepository cards = mock(ProductCardRepository.class);
+
+    @Test
+    void etagDependsOnlyOnContent() throws Exception {
+        when(cards.findNewArrivals(any())).thenReturn(List.of(card(1L, "Bep nuong")));
+        when(cards.findBestSellers(any(), any())).thenReturn(List.of(card(2L, "Vi nuong")));
+        StorefrontLandingService instanceA = service();
+        StorefrontLandingService instanceB = service();
+
+        instanceA.rebuild();
+        String etag = instanceA.current().etag();
+        Thread.sleep(5);
+        instanceA.rebuild();
+        instanceB.rebuild();
+
+        assertEquals(etag, instanceA.current().etag());
+        assertEquals(etag, instanceB.current().etag());
+
+        when(cards.findNewArrivals(any())).thenReturn(List.of(card(3L, "Than hoa")));
+        instanceA.rebuild();
+        assertNotEquals(etag, instanceA.current().etag());
+    }
+
+    private StorefrontLandingService service() {
+        return new StorefrontLandingService(cards, new ObjectMapper(), 16, Duration.ofMinutes(5));
+    }
+
+    private static ProductCard card(Long id, String name) {
+        return ProductCard.builder().productId(id).name(name).category(Category.BBQ)
+                .displayPrice(BigDecimal.TEN).inStock(true).build();
+    }
+}
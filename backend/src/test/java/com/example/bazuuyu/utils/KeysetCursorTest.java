@@ -0,0 +1,74 @@
+package com.example.bazuuyu.utils;
+
+import com.example.bazuuyu.catalog.cache.SearchFacetCache;
+import com.example.bazuuyu.catalog.cache.SearchResultCache;
+import com.example.bazuuyu.catalog.search.ProductSuggestIndex;
+import com.example.bazuuyu.controller.SearchController;
+import com.example.bazuuyu.repository.ProductRepository;
+import com.example.bazuuyu.service.ProductSearchService;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * cursor keyset: doc lai dung gia tri da ghi; cursor gia/hong (ke ca gia tri sai kieu, "null") => 400, khong 500.
+ */
+class KeysetCursorTest {
+
+    @Test
+    void roundTripsTypedValues() {
+        LocalDateTime at = LocalDateTime.of(2024, 5, 1, 10, 30, 15);
+        KeysetCursor latest = KeysetCursor.decode(KeysetCursor.encode("latest", at, 42L), "latest");
+        assertEquals(at, latest.timestampValue());
+        assertEquals(42L, latest.id());
+
+        KeysetCursor cheap = KeysetCursor.decode(KeysetCursor.encode("priceLowToHigh", "199000.00", 7L), "priceLowToHigh");
+        assertEquals(new BigDecimal("199000.00"), cheap.decimalValue());
+        assertNull(KeysetCursor.decode(" ", "latest"));
+    }
+
+    @Test
+    void badCursorsAreIllegalArguments() {
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode("%%%", "latest"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(raw("latest|x"), "latest"));
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(raw("latest|2024-05-01T10:30|id"), "latest"));
+        assertThrows(IllegalArgumentException.class,
+                () -> KeysetCursor.decode(KeysetCursor.encode("priceLowToHigh", "1", 1L), "latest"));
+
+        // decode duoc nhung gia tri sai kieu: createdAt null luc ghi, chuoi gia mao
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(raw("latest|null|1"), "latest").timestampValue());
+        assertThrows(IllegalArgumentException.class, () -> KeysetCursor.decode(raw("latest|2024-13-45|1"), "latest").timestampValue());
+        assertThrows(IllegalArgumentException.class,
+                () -> KeysetCursor.decode(raw("priceLowToHigh|abc|1"), "priceLowToHigh").decimalValue());
+    }
+
+    @Test
+    void searchWithForgedCursorIsBadRequest() throws Exception {
+        ProductRepository repository = mock(ProductRepository.class);
+        ProductSearchService service = new ProductSearchService(repository, mock(SearchFacetCache.class),
+                mock(SearchResultCache.class));
+        MockMvc mvc = MockMvcBuilders
+                .standaloneSetup(new SearchController(service, mock(ProductSuggestIndex.class)))
+                .build();
+
+        for (String cursor : new String[]{raw("latest|null|1"), raw("latest|yesterday|1"), "not-base64!"}) {
+            mvc.perform(get("/api/search").param("keyword", "ao").param("cursor", cursor))
+                    .andExpect(status().isBadRequest());
+        }
+        verifyNoInteractions(repository);
+    }
+
+    private static String raw(String s) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(s.getBytes(StandardCharsets.UTF_8));
+    }
+}
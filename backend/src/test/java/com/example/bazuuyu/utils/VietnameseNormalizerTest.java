@@ -0,0 +1,38 @@
+package com.example.bazuuyu.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * bo dau cho search: ket qua phai giong nhau luc ghi (Product.searchText) va luc query.
+ */
+class VietnameseNormalizerTest {
+
+    @Test
+    void foldsDiacriticsCaseAndWhitespace() {
+        assertEquals("ao thun nu do", VietnameseNormalizer.normalize("  Áo  Thun Nữ ĐỎ "));
+        assertEquals("set lau nuong han quoc", VietnameseNormalizer.normalize("Set lẩu nướng Hàn Quốc"));
+        assertEquals("a y u o", VietnameseNormalizer.normalize("Ặ ỹ Ư ơ"));
+        assertEquals("ao thun", VietnameseNormalizer.normalize("áo thun"));
+    }
+
+    @Test
+    void decomposedInputFoldsLikeComposed() {
+        // "áo" dang NFD (a + dau sac roi) tu ban phim/trinh duyet khac
+        assertEquals("ao", VietnameseNormalizer.normalize("a\u0301o"));
+        assertEquals("quoc", VietnameseNormalizer.normalize("Quo\u0302\u0301c"));
+    }
+
+    @Test
+    void tabsAndNewlinesCollapseToOneSpace() {
+        assertEquals("bep lau bbq", VietnameseNormalizer.normalize("Bếp\tlẩu\n\nBBQ"));
+    }
+
+    @Test
+    void nullAndBlankBecomeEmpty() {
+        assertEquals("", VietnameseNormalizer.normalize(null));
+        assertEquals("", VietnameseNormalizer.normalize(""));
+        assertEquals("", VietnameseNormalizer.normalize("   "));
+    }
+}
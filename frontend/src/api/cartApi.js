@@ -37,6 +37,13 @@ export async function getCartItems() {
     }
 }
 
+// header badge: {lineCount, itemCount, totalPrice} from one aggregate query
+export async function getCartSummary() {
+    if (!isJwtValidNow()) return { itemCount: getLocalCart().reduce((s, x) => s + (x.quantity || 0), 0) };
+    const { data } = await axios.get('/cart/summary');
+    return data;
+}
+
 export async function mergeCart(items) {
     // server-only, used immediately after login
     return axios.post('/cart/merge', { items }); // [{productId, quantity}]
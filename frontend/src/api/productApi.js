@@ -26,11 +26,15 @@ export const getNewArrivals = async () => {
 };
 
 
+// landing page: one precomputed snapshot (/storefront/landing) instead of several list calls
+export const getLanding = async () => {
+    const { data } = await apiClient.get('/storefront/landing');
+    return data;
+};
+
 export const getLandingNewArrivals = async (size = 16) => {
-    const { data } = await apiClient.get('/products', {
-        params: { page: 0, size, newArrival: true }
-    });
-    return unwrap(data);
+    const data = await getLanding();
+    return (data?.newArrivals || []).slice(0, size);
 };
 
 export const getBestSellers = async (page = 0, size = 24) => {
@@ -9,7 +9,7 @@ import shoppingCart from '../assets/shopping-cart.svg';
 import search from '../assets/search-normal.svg';
 import { CustomerContext } from './CustomerContext';
 import { getWishlist } from '../api/wishlistApi';
-import { getCartItems } from '../api/cartApi';
+import { getCartSummary } from '../api/cartApi';
 import { localWishlistCount } from '../lib/localWishlist';
 import { localCartCount } from '../lib/localCart';
 import CartDrawer from './CartDrawer';
@@ -61,14 +61,8 @@ export default function Navbar() {
                     })
                     .catch(() => setWishlistCount(0));
 
-                getCartItems(customer.id)
-                    .then(items => {
-                        // if server returns {productId, quantity}, count sum; else length
-                        const sum = Array.isArray(items)
-                            ? items.reduce((s,x)=> s + (x.quantity ?? 1), 0)
-                            : 0;
-                        setCartCount(sum);
-                    })
+                getCartSummary()
+                    .then(summary => setCartCount(summary?.itemCount ?? 0))
                     .catch(() => setCartCount(0));
             } else {
                 setWishlistCount(localWishlistCount());
@@ -1,5 +1,5 @@
 // src/pages/CheckoutPage.jsx
-import React, { useEffect, useState } from 'react';
+import React, { useEffect, useRef, useState } from 'react';
 import apiClient from '../api/axiosInstance';
 
 export default function CheckoutPage() {
@@ -15,6 +15,9 @@ export default function CheckoutPage() {
         payment: 'VNPAY_QR', // 'COD' or 'VNPAY_QR'
     });
 
+    // 1 key cho 1 lan dat hang: bam lai sau loi mang => server tra don da tao, khong tao don thu 2
+    const idempotencyKey = useRef(null);
+
     const [provinces, setProvinces] = useState([]);
     const [districts, setDistricts] = useState([]);
     const [wards, setWards] = useState([]);
@@ -92,6 +95,7 @@ export default function CheckoutPage() {
 
     const onChange = (e) => {
         const { name, value } = e.target;
+        idempotencyKey.current = null; // don khac => key moi
         setForm(f => {
             // clear children when parent changes
             if (name === 'province') return { ...f, province: value, district: '', ward: '' };
@@ -113,7 +117,11 @@ export default function CheckoutPage() {
             country: 'VN',
         };
         console.log('Checkout payload:', payload);
-        const { data: order } = await apiClient.post('/orders/checkout', payload);
+        if (!idempotencyKey.current) idempotencyKey.current = crypto.randomUUID();
+        const key = idempotencyKey.current;
+        const { data: order } = await apiClient.post('/orders/checkout', payload, {
+            headers: { 'Idempotency-Key': key },
+        });
 
         console.log('order response from /orders/checkout:', order);
 
@@ -124,7 +132,10 @@ export default function CheckoutPage() {
         }
 
         if (form.payment === 'COD') {
-            await apiClient.post(`/payments/cod/${orderCode}`);
+            await apiClient.post(`/payments/cod/${orderCode}`, null, {
+                headers: { 'Idempotency-Key': `${key}-cod` },
+            });
+            idempotencyKey.current = null;
 
             // CLEAR CART
             localStorage.removeItem('cart');        // guest cart
@@ -137,6 +148,7 @@ export default function CheckoutPage() {
             const { data: payUrl } = await apiClient.get(`/payments/vnpay/${orderCode}`, {
                 params: { channel: 'VNPAY_QR' },
             });
+            idempotencyKey.current = null;
             localStorage.removeItem('cart');
             window.dispatchEvent(new Event('cart-updated'));
             window.location.href = payUrl;
@@ -293,7 +293,7 @@ export default function LandingPage() {
                                                                     style: 'currency',
                                                                     currency: 'VND',
                                                                     maximumFractionDigits: 0,
-                                                                }).format(Number(item.price ?? 0))}
+                                                                }).format(Number(item.displayPrice ?? item.price ?? 0))}
                                                             </p>
 
                                                             {/* ACTIONS */}